@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the array UDFs over writable inputs, driven the way Hive drives them: through
+ * {@link DeferredJavaObject}s and standard writable list inspectors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayUDFBenchmark {
+
+    @Param({"bigint", "int", "double", "string"})
+    public String elementType;
+
+    @Param({"16", "1024", "16384"})
+    public int length;
+
+    /**
+     * Share of the elements that repeat an earlier value.
+     */
+    @Param({"0.0", "0.5", "0.9"})
+    public double duplicateRatio;
+
+    private GenericUDF distinct;
+    private GenericUDF except;
+    private GenericUDF intersect;
+    private GenericUDF join;
+    private GenericUDF max;
+    private GenericUDF min;
+    private GenericUDF remove;
+    private GenericUDF slice;
+    private GenericUDF union;
+
+    private DeferredObject[] oneArray;
+    private DeferredObject[] twoArrays;
+    private DeferredObject[] joinArgs;
+    private DeferredObject[] removeArgs;
+    private DeferredObject[] sliceArgs;
+
+    @Setup
+    public void setup() throws HiveException {
+        PrimitiveObjectInspector elementOI = PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(
+                TypeInfoFactory.getPrimitiveTypeInfo(elementType));
+        ObjectInspector listOI = ObjectInspectorFactory.getStandardListObjectInspector(elementOI);
+        ObjectInspector intOI = PrimitiveObjectInspectorFactory.writableIntObjectInspector;
+        ObjectInspector stringOI = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+
+        Random random = new Random(42);
+        // array2 shares half of its values with array
+        List<Object> array = generate(random, 0);
+        List<Object> array2 = generate(random, Math.max(1, (int) (length * (1.0 - duplicateRatio))) / 2);
+
+        oneArray = new DeferredObject[] { new DeferredJavaObject(array) };
+        twoArrays = new DeferredObject[] { new DeferredJavaObject(array), new DeferredJavaObject(array2) };
+        joinArgs = new DeferredObject[] { new DeferredJavaObject(array), new DeferredJavaObject(new Text(",")) };
+        removeArgs = new DeferredObject[] { new DeferredJavaObject(array), new DeferredJavaObject(array.get(0)) };
+        sliceArgs = new DeferredObject[] { new DeferredJavaObject(array),
+                new DeferredJavaObject(new IntWritable(length / 4)), new DeferredJavaObject(new IntWritable(length / 2)) };
+
+        distinct = init(new GenericUDFArrayDistinct(), listOI);
+        except = init(new GenericUDFArrayExcept(), listOI, listOI);
+        intersect = init(new GenericUDFArrayIntersect(), listOI, listOI);
+        join = init(new GenericUDFArrayJoin(), listOI, stringOI);
+        max = init(new GenericUDFArrayMax(), listOI);
+        min = init(new GenericUDFArrayMin(), listOI);
+        remove = init(new GenericUDFArrayRemove(), listOI, elementOI);
+        slice = init(new GenericUDFArraySlice(), listOI, intOI, intOI);
+        union = init(new GenericUDFArrayUnion(), listOI, listOI);
+    }
+
+    private static GenericUDF init(GenericUDF udf, ObjectInspector... arguments) throws HiveException {
+        udf.initialize(arguments);
+        return udf;
+    }
+
+    /**
+     * Builds an array with {@code length * (1 - duplicateRatio)} distinct values, starting at
+     * {@code offset}, in random order.
+     */
+    private List<Object> generate(Random random, int offset) {
+        int cardinality = Math.max(1, (int) (length * (1.0 - duplicateRatio)));
+        List<Object> values = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            values.add(value(offset + (i < cardinality ? i : random.nextInt(cardinality))));
+        }
+        Collections.shuffle(values, random);
+        return values;
+    }
+
+    private Object value(int v) {
+        switch (elementType) {
+            case "bigint":
+                return new LongWritable(v * 1000003L);
+            case "int":
+                return new IntWritable(v);
+            case "double":
+                return new DoubleWritable(v / 7.0);
+            default:
+                return new Text("value-" + v);
+        }
+    }
+
+    @Benchmark
+    public Object arrayDistinct() throws HiveException {
+        return distinct.evaluate(oneArray);
+    }
+
+    @Benchmark
+    public Object arrayExcept() throws HiveException {
+        return except.evaluate(twoArrays);
+    }
+
+    @Benchmark
+    public Object arrayIntersect() throws HiveException {
+        return intersect.evaluate(twoArrays);
+    }
+
+    @Benchmark
+    public Object arrayJoin() throws HiveException {
+        return join.evaluate(joinArgs);
+    }
+
+    @Benchmark
+    public Object arrayMax() throws HiveException {
+        return max.evaluate(oneArray);
+    }
+
+    @Benchmark
+    public Object arrayMin() throws HiveException {
+        return min.evaluate(oneArray);
+    }
+
+    @Benchmark
+    public Object arrayRemove() throws HiveException {
+        return remove.evaluate(removeArgs);
+    }
+
+    @Benchmark
+    public Object arraySlice() throws HiveException {
+        return slice.evaluate(sliceArgs);
+    }
+
+    @Benchmark
+    public Object arrayUnion() throws HiveException {
+        return union.evaluate(twoArrays);
+    }
+}
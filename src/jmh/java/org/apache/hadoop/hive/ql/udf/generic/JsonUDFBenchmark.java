@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader;
+import org.apache.hadoop.hive.serde2.json.JsonDocuments;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of json_read and set_value on generated documents, see {@link JsonDocuments}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonUDFBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int fields;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    private GenericUDF jsonRead;
+    private GenericUDF setValue;
+    private DeferredObject[] jsonReadArgs;
+    private DeferredObject[] setValueArgs;
+
+    @Setup
+    public void setup() throws Exception {
+        String typeString = JsonDocuments.typeString(fields, depth);
+        String document = JsonDocuments.document(fields, depth, new Random(42));
+
+        jsonRead = new GenericUDFJsonRead();
+        jsonRead.initialize(new ObjectInspector[] { PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        TypeInfoFactory.stringTypeInfo, new Text(typeString)) });
+        jsonReadArgs = new DeferredObject[] { new DeferredJavaObject(new Text(document)), null };
+
+        ObjectInspector structOI = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString(typeString));
+        HiveJsonReader reader = new HiveJsonReader(structOI);
+        reader.enable(HiveJsonReader.Feature.PRIMITIVE_TO_WRITABLE);
+        Object struct = reader.parseStruct(document);
+
+        // replace a top level field and the deepest f0
+        StringBuilder nestedKey = new StringBuilder();
+        for (int i = 1; i < depth; i++) {
+            nestedKey.append("child.");
+        }
+        nestedKey.append("f0");
+        ObjectInspector stringOI = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+        ObjectInspector longOI = PrimitiveObjectInspectorFactory.writableLongObjectInspector;
+        setValue = new GenericUDFSetValue();
+        setValue.initialize(new ObjectInspector[] { structOI, stringOI, longOI, stringOI, longOI });
+        setValueArgs = new DeferredObject[] { new DeferredJavaObject(struct),
+                new DeferredJavaObject(new Text("f0")), new DeferredJavaObject(new LongWritable(1L)),
+                new DeferredJavaObject(new Text(nestedKey.toString())), new DeferredJavaObject(new LongWritable(2L)) };
+    }
+
+    @Benchmark
+    public Object jsonRead() throws Exception {
+        return jsonRead.evaluate(jsonReadArgs);
+    }
+
+    @Benchmark
+    public Object setValue() throws Exception {
+        return setValue.evaluate(setValueArgs);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link HiveJsonReader} and {@link HiveJsonWriter} on generated documents, with
+ * writable inspectors as used by json_read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HiveJsonBenchmark {
+
+    /**
+     * Fields per object level, see {@link JsonDocuments}.
+     */
+    @Param({"8", "64", "512"})
+    public int fields;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    private String document;
+    private ObjectInspector oi;
+    private Object row;
+    private HiveJsonReader reader;
+    private HiveJsonWriter writer;
+
+    @Setup
+    public void setup() throws Exception {
+        document = JsonDocuments.document(fields, depth, new Random(42));
+        oi = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString(JsonDocuments.typeString(fields, depth)));
+        reader = new HiveJsonReader(oi);
+        reader.enable(HiveJsonReader.Feature.PRIMITIVE_TO_WRITABLE);
+        row = reader.parseStruct(document);
+        writer = new HiveJsonWriter();
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        return reader.parseStruct(document);
+    }
+
+    @Benchmark
+    public Object write() throws Exception {
+        return writer.write(row, oi);
+    }
+}
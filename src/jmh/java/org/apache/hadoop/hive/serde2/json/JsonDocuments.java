@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import java.util.Random;
+
+/**
+ * Generates JSON documents and the matching Hive type string for the JSON benchmarks.
+ * <p>
+ * Every level of a document has {@code fields} fields that cycle through bigint, double, string,
+ * boolean and array&lt;bigint&gt; values. When {@code depth} is larger than one, the level also
+ * has a {@code child} field holding the next level.
+ */
+public final class JsonDocuments {
+
+    private static final String[] TYPES = {"bigint", "double", "string", "boolean", "array<bigint>"};
+
+    private JsonDocuments() {
+    }
+
+    public static String typeString(int fields, int depth) {
+        StringBuilder sb = new StringBuilder("struct<");
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('f').append(i).append(':').append(TYPES[i % TYPES.length]);
+        }
+        if (depth > 1) {
+            sb.append(",child:").append(typeString(fields, depth - 1));
+        }
+        return sb.append('>').toString();
+    }
+
+    public static String document(int fields, int depth, Random random) {
+        StringBuilder sb = new StringBuilder();
+        appendLevel(sb, fields, depth, random);
+        return sb.toString();
+    }
+
+    private static void appendLevel(StringBuilder sb, int fields, int depth, Random random) {
+        sb.append('{');
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"f").append(i).append("\":");
+            switch (i % TYPES.length) {
+                case 0:
+                    sb.append(random.nextLong());
+                    break;
+                case 1:
+                    sb.append(random.nextDouble() * 1000);
+                    break;
+                case 2:
+                    sb.append("\"value-").append(random.nextInt(100000)).append('"');
+                    break;
+                case 3:
+                    sb.append(random.nextBoolean());
+                    break;
+                default:
+                    sb.append('[');
+                    for (int j = 0; j < 4; j++) {
+                        sb.append(j > 0 ? "," : "").append(random.nextInt());
+                    }
+                    sb.append(']');
+                    break;
+            }
+        }
+        if (depth > 1) {
+            sb.append(",\"child\":");
+            appendLevel(sb, fields, depth - 1, random);
+        }
+        sb.append('}');
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.exec.vector.expressions;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorExpressionDescriptor;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFJsonRead;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader.Feature;
+import org.apache.hadoop.hive.serde2.json.HiveJsonVectorReader;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Vectorized json_read: parses a string column straight into the output
+ * column vector of the requested type, see {@link HiveJsonVectorReader}.
+ * <p>
+ * The {@value GenericUDFJsonRead#LAZY} and
+ * {@value GenericUDFJsonRead#STRUCTURAL_INDEX} options have no meaning for
+ * column vectors and are ignored. Rows read as null by
+ * {@value GenericUDFJsonRead#NULL_ON_ERROR} are reported after every batch.
+ */
+public class VectorUDFJsonRead extends VectorExpression {
+    private static final long serialVersionUID = 1L;
+
+    private final int inputColumn;
+    private final byte[] typeString;
+    /**
+     * Set by {@link VectorUDFJsonReadOptions}. Vectorization picks the constructor by reflection,
+     * so this class keeps a single one besides the default constructor.
+     */
+    protected byte[] options;
+
+    private transient HiveJsonVectorReader jsonReader;
+
+    public VectorUDFJsonRead(int inputColumn, byte[] typeString, int outputColumnNum) {
+        super(outputColumnNum);
+        this.inputColumn = inputColumn;
+        this.typeString = typeString;
+    }
+
+    public VectorUDFJsonRead() {
+        super();
+        this.inputColumn = -1;
+        this.typeString = null;
+    }
+
+    @Override
+    public void transientInit() throws HiveException {
+        super.transientInit();
+        jsonReader = createReader();
+    }
+
+    private HiveJsonVectorReader createReader() throws HiveException {
+        HiveJsonReader reader;
+        try {
+            reader = new HiveJsonReader(TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(
+                    TypeInfoUtils.getTypeInfoFromTypeString(new String(typeString, StandardCharsets.UTF_8))));
+        } catch (Exception e) {
+            throw new HiveException("json_read: Error parsing typestring: " + e.getMessage(), e);
+        }
+        if (options != null) {
+            for (String option : new String(options, StandardCharsets.UTF_8).split(",")) {
+                switch (option.trim().toLowerCase()) {
+                    case "":
+                    case GenericUDFJsonRead.LAZY:
+                    case GenericUDFJsonRead.STRUCTURAL_INDEX:
+                        break;
+                    case GenericUDFJsonRead.IGNORE_UNKNOWN_FIELDS:
+                        reader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+                        break;
+                    case GenericUDFJsonRead.NULL_ON_ERROR:
+                        reader.enable(Feature.NULL_ON_ERROR);
+                        break;
+                    default:
+                        throw new HiveException("json_read: Unknown option: " + option);
+                }
+            }
+        }
+        return new HiveJsonVectorReader(reader);
+    }
+
+    @Override
+    public void evaluate(VectorizedRowBatch batch) throws HiveException {
+        if (childExpressions != null) {
+            evaluateChildren(batch);
+        }
+        if (jsonReader == null) {
+            jsonReader = createReader();
+        }
+
+        BytesColumnVector inputColVector = (BytesColumnVector) batch.cols[inputColumn];
+        ColumnVector outputColVector = batch.cols[outputColumnNum];
+        int[] sel = batch.selected;
+        int n = batch.size;
+
+        // also restarts the children of lists and maps and the string buffers
+        outputColVector.reset();
+        if (n == 0) {
+            return;
+        }
+
+        long errors = jsonReader.getErrorCount();
+        try {
+            if (inputColVector.isRepeating) {
+                outputColVector.isRepeating = true;
+                parseRow(inputColVector, 0, outputColVector);
+            } else if (batch.selectedInUse) {
+                for (int j = 0; j != n; j++) {
+                    parseRow(inputColVector, sel[j], outputColVector);
+                }
+            } else {
+                for (int i = 0; i != n; i++) {
+                    parseRow(inputColVector, i, outputColVector);
+                }
+            }
+        } catch (Exception e) {
+            throw new HiveException("Error parsing json: " + e.getMessage(), e);
+        }
+
+        errors = jsonReader.getErrorCount() - errors;
+        if (errors > 0) {
+            MapredContext context = MapredContext.get();
+            Reporter reporter = context == null ? null : context.getReporter();
+            if (reporter != null) {
+                reporter.incrCounter(GenericUDFJsonRead.COUNTER_GROUP, GenericUDFJsonRead.MALFORMED_ROWS, errors);
+            }
+        }
+    }
+
+    private void parseRow(BytesColumnVector in, int i, ColumnVector out) throws Exception {
+        if ((!in.noNulls && in.isNull[i]) || GenericUDFJsonRead.isBlank(in.vector[i], in.start[i], in.length[i])) {
+            out.isNull[i] = true;
+            out.noNulls = false;
+        } else {
+            jsonReader.parseInto(in.vector[i], in.start[i], in.length[i], out, i);
+        }
+    }
+
+    public long getErrorCount() {
+        return jsonReader == null ? 0 : jsonReader.getErrorCount();
+    }
+
+    @Override
+    public String vectorExpressionParameters() {
+        String params = getColumnParamString(0, inputColumn) + ", type "
+                + new String(typeString, StandardCharsets.UTF_8);
+        return options == null ? params : params + ", options " + new String(options, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public VectorExpressionDescriptor.Descriptor getDescriptor() {
+        return (new VectorExpressionDescriptor.Builder())
+                .setMode(VectorExpressionDescriptor.Mode.PROJECTION)
+                .setNumArguments(2)
+                .setArgumentTypes(
+                        VectorExpressionDescriptor.ArgumentType.STRING_FAMILY,
+                        VectorExpressionDescriptor.ArgumentType.STRING)
+                .setInputExpressionTypes(
+                        VectorExpressionDescriptor.InputExpressionType.COLUMN,
+                        VectorExpressionDescriptor.InputExpressionType.SCALAR).build();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.exec.vector.expressions;
+
+import org.apache.hadoop.hive.ql.exec.vector.VectorExpressionDescriptor;
+
+/**
+ * Vectorized json_read with the third, options argument.
+ */
+public class VectorUDFJsonReadOptions extends VectorUDFJsonRead {
+    private static final long serialVersionUID = 1L;
+
+    public VectorUDFJsonReadOptions(int inputColumn, byte[] typeString, byte[] options, int outputColumnNum) {
+        super(inputColumn, typeString, outputColumnNum);
+        this.options = options;
+    }
+
+    public VectorUDFJsonReadOptions() {
+        super();
+    }
+
+    @Override
+    public VectorExpressionDescriptor.Descriptor getDescriptor() {
+        return (new VectorExpressionDescriptor.Builder())
+                .setMode(VectorExpressionDescriptor.Mode.PROJECTION)
+                .setNumArguments(3)
+                .setArgumentTypes(
+                        VectorExpressionDescriptor.ArgumentType.STRING_FAMILY,
+                        VectorExpressionDescriptor.ArgumentType.STRING,
+                        VectorExpressionDescriptor.ArgumentType.STRING)
+                .setInputExpressionTypes(
+                        VectorExpressionDescriptor.InputExpressionType.COLUMN,
+                        VectorExpressionDescriptor.InputExpressionType.SCALAR,
+                        VectorExpressionDescriptor.InputExpressionType.SCALAR).build();
+    }
+}
@@ -17,20 +17,34 @@
  */
 package org.apache.hadoop.hive.ql.udf.generic;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.objectinspector.*;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Abstract GenericUDF for array functions
+ * <p>
+ * When {@link #REUSE_OUTPUT} is set in the job configuration, the functions that return an array
+ * collect every row's result in the same list. The returned list is then only valid until the next
+ * call to {@code evaluate}, the same contract Hive operators already follow for writables; callers
+ * that keep a result must copy it.
  */
 
 public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
 
     static final int ARRAY_IDX = 0;
 
+    /**
+     * Job property that makes the array returning functions reuse one result list between rows.
+     */
+    public static final String REUSE_OUTPUT = "hive.udf.array.reuse.output";
+
     private final int minArgCount;
     private final int maxArgCount;
     private final ObjectInspector.Category outputCategory;
@@ -42,6 +56,17 @@ public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
 
     transient Converter converter;
 
+    /**
+     * True when the return element inspector is the input element inspector, so elements can be
+     * returned as they are instead of going through {@link #converter}.
+     */
+    transient boolean identityConversion;
+
+    transient ArrayElementKernel kernel;
+
+    private transient boolean reuseOutput;
+    private transient ArrayList<Object> output;
+
     protected AbstractGenericUDFArrayBase(String functionName, int minArgCount, int maxArgCount, ObjectInspector.Category outputCategory) {
         this.functionName = functionName;
         this.minArgCount = minArgCount;
@@ -63,6 +88,7 @@ public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
         //return ObjectInspectors based on expected output type
         arrayOI = (ListObjectInspector) arguments[ARRAY_IDX];
         argumentOIs = arguments;
+        kernel = ArrayElementKernel.create(arrayOI.getListElementObjectInspector());
         if (outputCategory == ObjectInspector.Category.LIST) {
             return initListOI(arguments);
         } else {
@@ -70,6 +96,11 @@ public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
         }
     }
 
+    @Override
+    public void configure(MapredContext context) {
+        reuseOutput = context.getJobConf().getBoolean(REUSE_OUTPUT, false);
+    }
+
     @Override
     public String getDisplayString(String[] children) {
         return getStandardDisplayString(functionName.toLowerCase(), children);
@@ -112,6 +143,7 @@ public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
 
         ObjectInspector returnOI = returnOIResolver.get(elementObjectInspector);
         converter = ObjectInspectorConverters.getConverter(elementObjectInspector, returnOI);
+        identityConversion = converter instanceof ObjectInspectorConverters.IdentityConverter;
         return returnOI;
     }
 
@@ -119,4 +151,74 @@ public abstract class AbstractGenericUDFArrayBase extends GenericUDF {
         return ObjectInspectorFactory.getStandardListObjectInspector(initOI(arguments));
     }
 
+    /**
+     * Converts an element of the first array to the return element type, skipping the converter
+     * when the conversion is the identity.
+     */
+    final Object convert(Object element) {
+        return identityConversion ? element : converter.convert(element);
+    }
+
+    /**
+     * Returns an empty list to collect a row's result in. With {@link #REUSE_OUTPUT} enabled this is
+     * the same list for every row.
+     */
+    List<Object> outputList(int expectedSize) {
+        if (!reuseOutput) {
+            return new ArrayList<>(expectedSize);
+        }
+        if (output == null) {
+            output = new ArrayList<>(expectedSize);
+        } else {
+            output.clear();
+            output.ensureCapacity(expectedSize);
+        }
+        return output;
+    }
+
+    /**
+     * Hashes a constant array argument once for the whole task. The kernel is picked by the element
+     * type of the first array, so it can be probed with the first array's elements. It is never
+     * cleared again and must only be probed with {@link ArrayElementKernel#find}.
+     *
+     * @param distinct if not null, receives the distinct elements of the constant in order
+     * @return the kernel, or null if the argument is not a constant or is a NULL constant
+     */
+    ArrayElementKernel initConstantKernel(ObjectInspector[] arguments, int idx, List<Object> distinct) {
+        if (!(arguments[idx] instanceof ConstantObjectInspector)) {
+            return null;
+        }
+        Object array = ((ConstantObjectInspector) arguments[idx]).getWritableConstantValue();
+        ListObjectInspector listOI = (ListObjectInspector) arguments[idx];
+        int length = listOI.getListLength(array);
+        if (length < 0) {
+            return null;
+        }
+        ObjectInspector elementOI = listOI.getListElementObjectInspector();
+        ArrayElementKernel constantKernel = ArrayElementKernel.create(arrayOI.getListElementObjectInspector());
+        constantKernel.clear(length);
+        for (int i = 0; i < length; i++) {
+            Object element = listOI.getListElement(array, i);
+            if (constantKernel.add(elementOI, element) >= 0 && distinct != null) {
+                distinct.add(element);
+            }
+        }
+        return constantKernel;
+    }
+
+    /**
+     * Adds the converted elements of the array that are not in the kernel's set yet, in order.
+     * The caller clears the kernel before the first array of a row.
+     */
+    void addDistinct(ListObjectInspector listOI, Object array, List<Object> result) {
+        ObjectInspector elementOI = listOI.getListElementObjectInspector();
+        int length = listOI.getListLength(array);
+        for (int i = 0; i < length; i++) {
+            Object element = listOI.getListElement(array, i);
+            if (kernel.add(elementOI, element) >= 0) {
+                result.add(convert(element));
+            }
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.DoubleObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.IntObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.LongObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+import java.util.Arrays;
+
+/**
+ * Element type specialized kernel for the array functions.
+ * <p>
+ * A kernel is picked once in {@link AbstractGenericUDFArrayBase#initialize} from the element
+ * PrimitiveCategory. bigint, int, double and (writable) string elements are read through their
+ * typed inspector and compared / hashed as unboxed values; every other element type goes through
+ * {@link Object#equals(Object)} and {@link Comparable}, like the stream based code did.
+ * <p>
+ * Besides min/max lookups a kernel is an open addressing hash set over elements. The table is
+ * kept between rows and {@link #clear(int)} only bumps a generation counter, so a row costs no
+ * allocation once the table is large enough. The set never grows while a row is processed: the
+ * caller passes an upper bound of the insertions to {@link #clear(int)}.
+ */
+abstract class ArrayElementKernel {
+
+    static final byte MARK_NONE = 0;
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** Number of hash slots, always a power of two. Slot {@code capacity} holds NULL. */
+    int capacity;
+    int mask;
+
+    private int[] stamps;
+    private byte[] marks;
+    private int generation;
+
+    static ArrayElementKernel create(ObjectInspector elementOI) {
+        if (elementOI.getCategory() == ObjectInspector.Category.PRIMITIVE) {
+            PrimitiveObjectInspector poi = (PrimitiveObjectInspector) elementOI;
+            switch (poi.getPrimitiveCategory()) {
+                case LONG:
+                    return new LongKernel();
+                case INT:
+                    return new IntKernel();
+                case DOUBLE:
+                    return new DoubleKernel(poi.preferWritable());
+                case STRING:
+                    // java string inspectors would allocate a Text for every element
+                    if (poi.preferWritable()) {
+                        return new TextKernel();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new ObjectKernel();
+    }
+
+    /**
+     * Index of the largest non-null element, or -1 if there is none. Ties keep the first element.
+     */
+    final int maxIndex(ListObjectInspector loi, Object array) {
+        return extremeIndex(loi, array, true);
+    }
+
+    /**
+     * Index of the smallest non-null element, or -1 if there is none. Ties keep the first element.
+     */
+    final int minIndex(ListObjectInspector loi, Object array) {
+        return extremeIndex(loi, array, false);
+    }
+
+    abstract int extremeIndex(ListObjectInspector loi, Object array, boolean max);
+
+    /**
+     * Empties the set and makes sure it can take {@code expectedSize} elements.
+     */
+    final void clear(int expectedSize) {
+        int required = tableSizeFor(expectedSize);
+        if (stamps == null || required > capacity) {
+            capacity = required;
+            mask = required - 1;
+            stamps = new int[required + 1];
+            marks = new byte[required + 1];
+            allocate(required + 1);
+            generation = 1;
+        } else if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Adds an element read with {@code elementOI}.
+     *
+     * @return the slot of the element if it was added, or {@code -(slot + 1)} if it was already present
+     */
+    final int add(ObjectInspector elementOI, Object o) {
+        if (o == null) {
+            if (isOccupied(capacity)) {
+                return -capacity - 1;
+            }
+            occupy(capacity);
+            return capacity;
+        }
+        return insert(elementOI, o);
+    }
+
+    /**
+     * @return the slot of the element, or -1 if it is not in the set
+     */
+    final int find(ObjectInspector elementOI, Object o) {
+        if (o == null) {
+            return isOccupied(capacity) ? capacity : -1;
+        }
+        return lookup(elementOI, o);
+    }
+
+    final byte getMark(int slot) {
+        return marks[slot];
+    }
+
+    final void setMark(int slot, byte mark) {
+        marks[slot] = mark;
+    }
+
+    final boolean isOccupied(int slot) {
+        return stamps[slot] == generation;
+    }
+
+    final void occupy(int slot) {
+        stamps[slot] = generation;
+        marks[slot] = MARK_NONE;
+    }
+
+    abstract void allocate(int size);
+
+    abstract int insert(ObjectInspector elementOI, Object o);
+
+    abstract int lookup(ObjectInspector elementOI, Object o);
+
+    static int tableSizeFor(int expectedSize) {
+        // keep the load factor at or below 0.5
+        int size = Math.max(MIN_CAPACITY, expectedSize << 1);
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long key) {
+        return mix((int) (key ^ (key >>> 32)));
+    }
+
+    static final class LongKernel extends ArrayElementKernel {
+        private long[] keys;
+
+        @Override void allocate(int size) {
+            keys = new long[size];
+        }
+
+        @Override int extremeIndex(ListObjectInspector loi, Object array, boolean max) {
+            LongObjectInspector oi = (LongObjectInspector) loi.getListElementObjectInspector();
+            int length = loi.getListLength(array);
+            int best = -1;
+            long bestValue = 0;
+            for (int i = 0; i < length; i++) {
+                Object o = loi.getListElement(array, i);
+                if (o == null) {
+                    continue;
+                }
+                long v = oi.get(o);
+                if (best < 0 || (max ? v > bestValue : v < bestValue)) {
+                    best = i;
+                    bestValue = v;
+                }
+            }
+            return best;
+        }
+
+        @Override int insert(ObjectInspector elementOI, Object o) {
+            long key = ((LongObjectInspector) elementOI).get(o);
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            occupy(slot);
+            return slot;
+        }
+
+        @Override int lookup(ObjectInspector elementOI, Object o) {
+            long key = ((LongObjectInspector) elementOI).get(o);
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    static final class IntKernel extends ArrayElementKernel {
+        private int[] keys;
+
+        @Override void allocate(int size) {
+            keys = new int[size];
+        }
+
+        @Override int extremeIndex(ListObjectInspector loi, Object array, boolean max) {
+            IntObjectInspector oi = (IntObjectInspector) loi.getListElementObjectInspector();
+            int length = loi.getListLength(array);
+            int best = -1;
+            int bestValue = 0;
+            for (int i = 0; i < length; i++) {
+                Object o = loi.getListElement(array, i);
+                if (o == null) {
+                    continue;
+                }
+                int v = oi.get(o);
+                if (best < 0 || (max ? v > bestValue : v < bestValue)) {
+                    best = i;
+                    bestValue = v;
+                }
+            }
+            return best;
+        }
+
+        @Override int insert(ObjectInspector elementOI, Object o) {
+            int key = ((IntObjectInspector) elementOI).get(o);
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            occupy(slot);
+            return slot;
+        }
+
+        @Override int lookup(ObjectInspector elementOI, Object o) {
+            int key = ((IntObjectInspector) elementOI).get(o);
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Doubles are compared like the elements' own equals. DoubleWritable#equals uses {@code ==}, so
+     * -0.0 is folded into 0.0 and NaN never equals anything: every NaN is a new element and is never
+     * found. java.lang.Double#equals compares the bit patterns, so there -0.0 and 0.0 differ and all
+     * NaNs are one value. min/max order by {@link Double#compare}, like both compareTo methods.
+     */
+    static final class DoubleKernel extends ArrayElementKernel {
+        private final boolean writable;
+        private long[] keys;
+        /** Spreads the NaNs over the table, which would otherwise all probe from the same slot. */
+        private int nans;
+
+        DoubleKernel(boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override void allocate(int size) {
+            keys = new long[size];
+        }
+
+        @Override int extremeIndex(ListObjectInspector loi, Object array, boolean max) {
+            DoubleObjectInspector oi = (DoubleObjectInspector) loi.getListElementObjectInspector();
+            int length = loi.getListLength(array);
+            int best = -1;
+            double bestValue = 0;
+            for (int i = 0; i < length; i++) {
+                Object o = loi.getListElement(array, i);
+                if (o == null) {
+                    continue;
+                }
+                double v = oi.get(o);
+                if (best < 0 || (max ? Double.compare(v, bestValue) > 0 : Double.compare(v, bestValue) < 0)) {
+                    best = i;
+                    bestValue = v;
+                }
+            }
+            return best;
+        }
+
+        private long key(double v) {
+            return writable && v == 0.0d ? 0L : Double.doubleToLongBits(v);
+        }
+
+        @Override int insert(ObjectInspector elementOI, Object o) {
+            double v = ((DoubleObjectInspector) elementOI).get(o);
+            long key = key(v);
+            if (writable && Double.isNaN(v)) {
+                int slot = mix(nans++) & mask;
+                while (isOccupied(slot)) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                occupy(slot);
+                return slot;
+            }
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            occupy(slot);
+            return slot;
+        }
+
+        @Override int lookup(ObjectInspector elementOI, Object o) {
+            double v = ((DoubleObjectInspector) elementOI).get(o);
+            if (writable && Double.isNaN(v)) {
+                return -1;
+            }
+            long key = key(v);
+            int slot = mix(key) & mask;
+            while (isOccupied(slot)) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Strings are hashed and compared on the UTF-8 bytes of the Text, without decoding. The set
+     * keeps references to the row's Text objects, so it is only valid until the next row.
+     */
+    static final class TextKernel extends ArrayElementKernel {
+        private Text[] keys;
+        private int[] hashes;
+
+        @Override void allocate(int size) {
+            keys = new Text[size];
+            hashes = new int[size];
+        }
+
+        @Override int extremeIndex(ListObjectInspector loi, Object array, boolean max) {
+            StringObjectInspector oi = (StringObjectInspector) loi.getListElementObjectInspector();
+            int length = loi.getListLength(array);
+            int best = -1;
+            Text bestValue = null;
+            for (int i = 0; i < length; i++) {
+                Object o = loi.getListElement(array, i);
+                if (o == null) {
+                    continue;
+                }
+                Text v = oi.getPrimitiveWritableObject(o);
+                if (best < 0) {
+                    best = i;
+                    bestValue = v;
+                    continue;
+                }
+                int cmp = v.compareTo(bestValue);
+                if (max ? cmp > 0 : cmp < 0) {
+                    best = i;
+                    bestValue = v;
+                }
+            }
+            return best;
+        }
+
+        private static boolean sameBytes(Text a, Text b) {
+            return a.getLength() == b.getLength()
+                    && WritableComparator.compareBytes(a.getBytes(), 0, a.getLength(),
+                    b.getBytes(), 0, b.getLength()) == 0;
+        }
+
+        @Override int insert(ObjectInspector elementOI, Object o) {
+            Text key = ((StringObjectInspector) elementOI).getPrimitiveWritableObject(o);
+            int hash = WritableComparator.hashBytes(key.getBytes(), key.getLength());
+            int slot = mix(hash) & mask;
+            while (isOccupied(slot)) {
+                if (hashes[slot] == hash && sameBytes(keys[slot], key)) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            occupy(slot);
+            return slot;
+        }
+
+        @Override int lookup(ObjectInspector elementOI, Object o) {
+            Text key = ((StringObjectInspector) elementOI).getPrimitiveWritableObject(o);
+            int hash = WritableComparator.hashBytes(key.getBytes(), key.getLength());
+            int slot = mix(hash) & mask;
+            while (isOccupied(slot)) {
+                if (hashes[slot] == hash && sameBytes(keys[slot], key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Fallback for every other element type, using the objects' own equals/hashCode/compareTo.
+     */
+    static final class ObjectKernel extends ArrayElementKernel {
+        private Object[] keys;
+        private int[] hashes;
+
+        @Override void allocate(int size) {
+            keys = new Object[size];
+            hashes = new int[size];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override int extremeIndex(ListObjectInspector loi, Object array, boolean max) {
+            int length = loi.getListLength(array);
+            int best = -1;
+            Comparable<Object> bestValue = null;
+            for (int i = 0; i < length; i++) {
+                Object o = loi.getListElement(array, i);
+                if (o == null) {
+                    continue;
+                }
+                if (best < 0) {
+                    best = i;
+                    bestValue = (Comparable<Object>) o;
+                    continue;
+                }
+                int cmp = ((Comparable<Object>) o).compareTo(bestValue);
+                if (max ? cmp > 0 : cmp < 0) {
+                    best = i;
+                    bestValue = (Comparable<Object>) o;
+                }
+            }
+            return best;
+        }
+
+        @Override int insert(ObjectInspector elementOI, Object o) {
+            int hash = o.hashCode();
+            int slot = mix(hash) & mask;
+            while (isOccupied(slot)) {
+                if (hashes[slot] == hash && keys[slot].equals(o)) {
+                    return -slot - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = o;
+            hashes[slot] = hash;
+            occupy(slot);
+            return slot;
+        }
+
+        @Override int lookup(ObjectInspector elementOI, Object o) {
+            int hash = o.hashCode();
+            int slot = mix(hash) & mask;
+            while (isOccupied(slot)) {
+                if (hashes[slot] == hash && keys[slot].equals(o)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+}
@@ -19,12 +19,10 @@ package org.apache.hadoop.hive.ql.udf.generic;
 
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
-import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Generic UDF for distinct array
@@ -44,15 +42,18 @@ import java.util.stream.Collectors;
     @Override public Object evaluate(DeferredObject[] arguments) throws HiveException {
 
         Object array = arguments[ARRAY_IDX].get();
+        int length = arrayOI.getListLength(array);
 
         // If the array is empty, then there are no duplicates, return back the empty array
-        if (arrayOI.getListLength(array) == 0) {
+        if (length == 0) {
             return Collections.emptyList();
-        } else if (arrayOI.getListLength(array) < 0) {
+        } else if (length < 0) {
             return null;
         }
 
-        List<?> retArray = ((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array);
-        return retArray.stream().distinct().map(o -> converter.convert(o)).collect(Collectors.toList());
+        kernel.clear(length);
+        List<Object> result = outputList(length);
+        addDistinct(arrayOI, array, result);
+        return result;
     }
 }
\ No newline at end of file
@@ -25,9 +25,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * GenericUDFArrayExcept
@@ -40,6 +38,8 @@ public class GenericUDFArrayExcept extends AbstractGenericUDFArrayBase {
     private static final String FUNC_NAME = "ARRAY_EXCEPT";
     static final String ERROR_NOT_COMPARABLE = "Input arrays are not comparable to use ARRAY_EXCEPT udf";
 
+    private transient ArrayElementKernel constantKernel;
+
     public GenericUDFArrayExcept() {
         super(FUNC_NAME, 2, 2, ObjectInspector.Category.LIST);
     }
@@ -51,6 +51,7 @@ public class GenericUDFArrayExcept extends AbstractGenericUDFArrayBase {
         if (!ObjectInspectorUtils.compareTypes(arrayOI.getListElementObjectInspector(), ((ListObjectInspector) arguments[ARRAY2_IDX]).getListElementObjectInspector())) { // check if elements of arrays are comparable
             throw new UDFArgumentTypeException(1, ERROR_NOT_COMPARABLE);
         }
+        constantKernel = initConstantKernel(arguments, ARRAY2_IDX, null);
         return defaultOI;
     }
 
@@ -65,10 +66,40 @@ public class GenericUDFArrayExcept extends AbstractGenericUDFArrayBase {
             return null;
         }
 
-        List<?> retArray3 = ((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array);
-        List inputArrayCopy = new ArrayList<>();
-        inputArrayCopy.addAll(retArray3);
-        inputArrayCopy.removeAll(((ListObjectInspector) argumentOIs[ARRAY2_IDX]).getList(arguments[ARRAY2_IDX].get()));
-        return inputArrayCopy.stream().distinct().map(o -> converter.convert(o)).collect(Collectors.toList());
+        if (constantKernel != null) {
+            return exceptConstant(array);
+        }
+
+        ListObjectInspector array2OI = (ListObjectInspector) argumentOIs[ARRAY2_IDX];
+        ObjectInspector element2OI = array2OI.getListElementObjectInspector();
+        int length = arrayOI.getListLength(array);
+        int length2 = array2OI.getListLength(array2);
+
+        // Elements of array2 are put in the set first, so they are never added from array1
+        kernel.clear(length + length2);
+        for (int i = 0; i < length2; i++) {
+            kernel.add(element2OI, array2OI.getListElement(array2, i));
+        }
+        List<Object> result = outputList(length);
+        addDistinct(arrayOI, array, result);
+        return result;
+    }
+
+    /**
+     * array2 is a constant that was hashed in initialize, only array1 is read per row.
+     */
+    private List<Object> exceptConstant(Object array) {
+        ObjectInspector elementOI = arrayOI.getListElementObjectInspector();
+        int length = arrayOI.getListLength(array);
+        List<Object> result = outputList(length);
+
+        kernel.clear(length);
+        for (int i = 0; i < length; i++) {
+            Object element = arrayOI.getListElement(array, i);
+            if (constantKernel.find(elementOI, element) < 0 && kernel.add(elementOI, element) >= 0) {
+                result.add(convert(element));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
@@ -25,9 +25,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * GenericUDFArrayIntersect.
@@ -40,6 +38,10 @@ public class GenericUDFArrayIntersect extends AbstractGenericUDFArrayBase {
     static final int ARRAY2_IDX = 1;
     private static final String FUNC_NAME = "ARRAY_INTERSECT";
     static final String ERROR_NOT_COMPARABLE = "Input arrays are not comparable to use ARRAY_INTERSECT udf";
+    private static final byte MATCHED = 1;
+    private static final byte EMITTED = 2;
+
+    private transient ArrayElementKernel constantKernel;
 
     public GenericUDFArrayIntersect() {
         super(FUNC_NAME, 2, 2, ObjectInspector.Category.LIST);
@@ -54,6 +56,7 @@ public class GenericUDFArrayIntersect extends AbstractGenericUDFArrayBase {
             // check if elements of arrays are comparable
             throw new UDFArgumentTypeException(1, ERROR_NOT_COMPARABLE);
         }
+        constantKernel = initConstantKernel(arguments, ARRAY2_IDX, null);
         return defaultOI;
     }
 
@@ -64,9 +67,69 @@ public class GenericUDFArrayIntersect extends AbstractGenericUDFArrayBase {
         if (array == null || array2 == null) {
             return null;
         }
-        //Copy the first input array into a new list
-        List<?> resultArray = new ArrayList<>(((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array));
-        resultArray.retainAll(((ListObjectInspector) argumentOIs[ARRAY2_IDX]).getList(array2));
-        return resultArray.stream().distinct().map(o -> converter.convert(o)).collect(Collectors.toList());
+        if (constantKernel != null) {
+            return intersectConstant(array);
+        }
+
+        ListObjectInspector array2OI = (ListObjectInspector) argumentOIs[ARRAY2_IDX];
+        ObjectInspector elementOI = arrayOI.getListElementObjectInspector();
+        ObjectInspector element2OI = array2OI.getListElementObjectInspector();
+        int length = arrayOI.getListLength(array);
+        int length2 = array2OI.getListLength(array2);
+        List<Object> result = outputList(Math.min(length, length2));
+
+        // The smaller array is hashed and the larger one probes it. The result keeps the order of array1.
+        if (length2 <= length) {
+            kernel.clear(length2);
+            for (int i = 0; i < length2; i++) {
+                kernel.add(element2OI, array2OI.getListElement(array2, i));
+            }
+            for (int i = 0; i < length; i++) {
+                Object element = arrayOI.getListElement(array, i);
+                int slot = kernel.find(elementOI, element);
+                if (slot >= 0 && kernel.getMark(slot) != EMITTED) {
+                    kernel.setMark(slot, EMITTED);
+                    result.add(convert(element));
+                }
+            }
+        } else {
+            kernel.clear(length);
+            for (int i = 0; i < length; i++) {
+                kernel.add(elementOI, arrayOI.getListElement(array, i));
+            }
+            for (int i = 0; i < length2; i++) {
+                int slot = kernel.find(element2OI, array2OI.getListElement(array2, i));
+                if (slot >= 0) {
+                    kernel.setMark(slot, MATCHED);
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                Object element = arrayOI.getListElement(array, i);
+                int slot = kernel.find(elementOI, element);
+                if (slot >= 0 && kernel.getMark(slot) == MATCHED) {
+                    kernel.setMark(slot, EMITTED);
+                    result.add(convert(element));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * array2 is a constant that was hashed in initialize, only array1 is read per row.
+     */
+    private List<Object> intersectConstant(Object array) {
+        ObjectInspector elementOI = arrayOI.getListElementObjectInspector();
+        int length = arrayOI.getListLength(array);
+        List<Object> result = outputList(length);
+
+        kernel.clear(length);
+        for (int i = 0; i < length; i++) {
+            Object element = arrayOI.getListElement(array, i);
+            if (constantKernel.find(elementOI, element) >= 0 && kernel.add(elementOI, element) >= 0) {
+                result.add(convert(element));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
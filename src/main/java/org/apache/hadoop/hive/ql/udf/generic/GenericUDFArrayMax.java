@@ -19,14 +19,8 @@ package org.apache.hadoop.hive.ql.udf.generic;
 
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
-import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
-
 /**
  * Generic UDF to find out max from array elements
  * <code>ARRAY_MAX(array(obj1, obj2, obj3...))</code>.
@@ -54,8 +48,7 @@ public class GenericUDFArrayMax extends AbstractGenericUDFArrayBase {
             return null;
         }
 
-        List retArray = ((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array);
-        Optional value = retArray.stream().filter(Objects::nonNull).max(Comparator.naturalOrder());
-        return value.isPresent() ? value.get() : null;
+        int index = kernel.maxIndex(arrayOI, array);
+        return index < 0 ? null : arrayOI.getListElement(array, index);
     }
 }
\ No newline at end of file
@@ -21,14 +21,11 @@ import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
-import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * GenericUDFArrayRemove.
@@ -66,14 +63,20 @@ public class GenericUDFArrayRemove extends AbstractGenericUDFArrayBase {
 
         Object array = arguments[ARRAY_IDX].get();
         Object value = arguments[VALUE_IDX].get();
-        if (arrayOI.getListLength(array) == 0) {
+        int length = arrayOI.getListLength(array);
+        if (length == 0) {
             return Collections.emptyList();
-        } else if (arrayOI.getListLength(array) < 0 || value == null) {
+        } else if (length < 0 || value == null) {
             return null;
         }
 
-        List<?> resultArray = new ArrayList<>(((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array));
-        resultArray.removeIf(value::equals);
-        return resultArray.stream().map(o -> converter.convert(o)).collect(Collectors.toList());
+        List<Object> result = outputList(length);
+        for (int i = 0; i < length; i++) {
+            Object element = arrayOI.getListElement(array, i);
+            if (!value.equals(element)) {
+                result.add(convert(element));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
@@ -20,14 +20,12 @@ package org.apache.hadoop.hive.ql.udf.generic;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
-import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.IntObjectInspector;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * GenericUDFArraySlice.
@@ -55,19 +53,33 @@ public class GenericUDFArraySlice extends AbstractGenericUDFArrayBase {
     @Override public Object evaluate(DeferredObject[] arguments) throws HiveException {
 
         Object array = arguments[ARRAY_IDX].get();
-        if (arrayOI.getListLength(array) == 0) {
+        int arrayLength = arrayOI.getListLength(array);
+        if (arrayLength == 0) {
             return Collections.emptyList();
-        } else if (arrayOI.getListLength(array) < 0) {
+        } else if (arrayLength < 0) {
             return null;
         }
 
-        List<?> retArray = ((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array);
         int start = ((IntObjectInspector) argumentOIs[START_IDX]).get(arguments[START_IDX].get());
         int length = ((IntObjectInspector) argumentOIs[LENGTH_IDX]).get(arguments[LENGTH_IDX].get());
         // return empty list if start/length are out of range of the array
-        if (start + length > retArray.size()) {
+        if (start + length > arrayLength) {
             return Collections.emptyList();
         }
-        return retArray.subList(start, start + length).stream().map(o -> converter.convert(o)).collect(Collectors.toList());
+        if (start < 0 || length < 0) {
+            throw new IndexOutOfBoundsException("start: " + start + ", length: " + length);
+        }
+        List<Object> result = outputList(length);
+        if (identityConversion) {
+            // only the requested elements are read; getList would build the whole list for lazy arrays
+            for (int i = start; i < start + length; i++) {
+                result.add(arrayOI.getListElement(array, i));
+            }
+        } else {
+            for (int i = start; i < start + length; i++) {
+                result.add(converter.convert(arrayOI.getListElement(array, i)));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
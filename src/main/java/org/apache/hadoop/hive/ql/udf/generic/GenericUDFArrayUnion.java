@@ -26,8 +26,8 @@ import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * GenericUDFArrayUnion
@@ -41,6 +41,10 @@ public class GenericUDFArrayUnion extends AbstractGenericUDFArrayBase {
     static final String ERROR_NOT_COMPARABLE = "Input arrays are not comparable to use ARRAY_UNION udf";
     private static final String FUNC_NAME = "ARRAY_UNION";
 
+    private transient ArrayElementKernel constantKernel;
+    private transient List<Object> constantElements;
+    private transient List<Object> constantValues;
+
     public GenericUDFArrayUnion() {
         super(FUNC_NAME, 2, 2, ObjectInspector.Category.LIST);
     }
@@ -56,6 +60,12 @@ public class GenericUDFArrayUnion extends AbstractGenericUDFArrayBase {
             // check if elements of arrays are comparable
             throw new UDFArgumentTypeException(1, ERROR_NOT_COMPARABLE);
         }
+        constantElements = new ArrayList<>();
+        constantKernel = initConstantKernel(arguments, ARRAY2_IDX, constantElements);
+        constantValues = new ArrayList<>(constantElements.size());
+        for (Object element : constantElements) {
+            constantValues.add(convert(element));
+        }
         return defaultOI;
     }
 
@@ -66,8 +76,37 @@ public class GenericUDFArrayUnion extends AbstractGenericUDFArrayBase {
         if (array == null || array2 == null) {
             return null;
         }
-        return Stream.concat(((ListObjectInspector) argumentOIs[ARRAY_IDX]).getList(array).stream(),
-                        ((ListObjectInspector) argumentOIs[ARRAY2_IDX]).getList(array2).stream()).distinct()
-                .map(o -> converter.convert(o)).collect(Collectors.toList());
+        if (constantKernel != null) {
+            return unionConstant(array);
+        }
+
+        ListObjectInspector array2OI = (ListObjectInspector) argumentOIs[ARRAY2_IDX];
+        int length = arrayOI.getListLength(array);
+        int length2 = array2OI.getListLength(array2);
+
+        kernel.clear(length + length2);
+        List<Object> result = outputList(length + length2);
+        addDistinct(arrayOI, array, result);
+        addDistinct(array2OI, array2, result);
+        return result;
+    }
+
+    /**
+     * array2 is a constant whose distinct elements were collected and converted in initialize.
+     * They are only probed against the elements of array1 per row.
+     */
+    private List<Object> unionConstant(Object array) {
+        ObjectInspector element2OI = ((ListObjectInspector) argumentOIs[ARRAY2_IDX]).getListElementObjectInspector();
+        int length = arrayOI.getListLength(array);
+        List<Object> result = outputList(length + constantValues.size());
+
+        kernel.clear(length);
+        addDistinct(arrayOI, array, result);
+        for (int i = 0; i < constantElements.size(); i++) {
+            if (kernel.find(element2OI, constantElements.get(i)) < 0) {
+                result.add(constantValues.get(i));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
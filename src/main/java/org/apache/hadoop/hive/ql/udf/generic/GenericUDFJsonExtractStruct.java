@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader.Feature;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorConverter.TextConverter;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Extracts several typed values from a json string in a single pass.
+ * <p>
+ * Every argument after the json is a constant {@code 'path:type'}. A path is a
+ * dot separated list of object field names, optionally prefixed with
+ * {@code $.}; the type is any Hive type. The paths are merged into one struct
+ * type that is read with unknown fields skipped, so the document is parsed
+ * once, only the requested values are materialized, and the rest is skipped at
+ * the token level.
+ * <p>
+ * The result is a struct with one field per path. The field is named after the
+ * path, with the dots replaced by underscores.
+ */
+@Description(name = "json_extract_struct", value = "_FUNC_(json,'path:type'[,'path:type'...]) - "
+        + "Extracts the values at the given paths of the json in one pass", extended = ""
+        + "A path is a dot separated list of field names, optionally prefixed with '$.'\n"
+        + "The result struct has one field per path, named after the path with '.' replaced by '_'\n"
+        + "Example:\n"
+        + "  > SELECT _FUNC_('{\"user\":{\"id\":1,\"name\":\"a\"}}', 'user.id:bigint', '$.user.name:string');\n"
+        + "  {\"user_id\":1,\"user_name\":\"a\"}")
+public class GenericUDFJsonExtractStruct extends GenericUDF {
+
+    private PrimitiveObjectInspector inputOI;
+    private TextConverter inputConverter;
+    private HiveJsonReader jsonReader;
+
+    /**
+     * For every output field, the field indexes leading to its value in the
+     * struct read by {@link #jsonReader}.
+     */
+    private int[][] fieldPaths;
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        checkArgsSize(arguments, 2, Integer.MAX_VALUE);
+        checkArgPrimitive(arguments, 0);
+        for (int i = 1; i < arguments.length; i++) {
+            checkArgPrimitive(arguments, i);
+            if (!ObjectInspectorUtils.isConstantObjectInspector(arguments[i])) {
+                throw new UDFArgumentTypeException(i, getFuncName() + " argument " + (i + 1) + " may only be a constant");
+            }
+        }
+        inputOI = (PrimitiveObjectInspector) arguments[0];
+        inputConverter = new TextConverter(inputOI);
+
+        PathNode root = new PathNode();
+        List<String> fieldNames = new ArrayList<>(arguments.length - 1);
+        List<ObjectInspector> fieldOIs = new ArrayList<>(arguments.length - 1);
+        List<PathNode> leaves = new ArrayList<>(arguments.length - 1);
+        for (int i = 1; i < arguments.length; i++) {
+            String spec = getConstantStringValue(arguments, i);
+            int colon = spec == null ? -1 : spec.indexOf(':');
+            if (colon < 0) {
+                throw new UDFArgumentException(getFuncName() + ": Expected 'path:type' but got: " + spec);
+            }
+            String[] path = parsePath(spec.substring(0, colon).trim());
+            ObjectInspector oi;
+            try {
+                oi = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                        TypeInfoUtils.getTypeInfoFromTypeString(spec.substring(colon + 1).trim()));
+            } catch (Exception e) {
+                throw new UDFArgumentException(getFuncName() + ": Error parsing typestring: " + e.getMessage());
+            }
+
+            String fieldName = String.join("_", path).toLowerCase();
+            if (fieldNames.contains(fieldName)) {
+                throw new UDFArgumentException(getFuncName() + ": Duplicate field: " + fieldName);
+            }
+            fieldNames.add(fieldName);
+            fieldOIs.add(oi);
+            leaves.add(root.add(path, oi, spec));
+        }
+
+        jsonReader = new HiveJsonReader(root.toObjectInspector());
+        jsonReader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+        jsonReader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+
+        fieldPaths = new int[leaves.size()][];
+        for (int i = 0; i < fieldPaths.length; i++) {
+            fieldPaths[i] = leaves.get(i).indexPath();
+        }
+        return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+    }
+
+    private String[] parsePath(String path) throws UDFArgumentException {
+        if (path.startsWith("$.")) {
+            path = path.substring(2);
+        }
+        String[] names = path.split("\\.", -1);
+        for (String name : names) {
+            if (name.isEmpty()) {
+                throw new UDFArgumentException(getFuncName() + ": Invalid path: " + path);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Object valObject = arguments[0].get();
+        if (valObject == null) {
+            return null;
+        }
+        Text text = inputOI instanceof StringObjectInspector
+                ? ((StringObjectInspector) inputOI).getPrimitiveWritableObject(valObject)
+                : inputConverter.convert(valObject);
+        if (GenericUDFJsonRead.isBlank(text.getBytes(), 0, text.getLength())) {
+            return null;
+        }
+
+        Object document;
+        try {
+            document = jsonReader.parseStruct(text.getBytes(), 0, text.getLength());
+        } catch (Exception e) {
+            throw new HiveException("Error parsing json: " + e.getMessage(), e);
+        }
+        if (document == null) {
+            return null;
+        }
+
+        Object[] result = new Object[fieldPaths.length];
+        for (int i = 0; i < result.length; i++) {
+            Object value = document;
+            for (int index : fieldPaths[i]) {
+                value = ((List<?>) value).get(index);
+                if (value == null) {
+                    break;
+                }
+            }
+            result[i] = value;
+        }
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return getStandardDisplayString("json_extract_struct", children);
+    }
+
+    /**
+     * A node of the struct type built from the paths: either an object with
+     * child fields or a leaf with the requested type.
+     */
+    private final class PathNode {
+        private final PathNode parent;
+        private final int index;
+        private final Map<String, PathNode> children = new LinkedHashMap<>();
+        private ObjectInspector leafOI;
+
+        PathNode() {
+            this(null, -1);
+        }
+
+        private PathNode(PathNode parent, int index) {
+            this.parent = parent;
+            this.index = index;
+        }
+
+        PathNode add(String[] path, ObjectInspector oi, String spec) throws UDFArgumentException {
+            PathNode node = this;
+            for (String name : path) {
+                if (node.leafOI != null) {
+                    throw new UDFArgumentException(getFuncName() + ": Path conflicts with another path: " + spec);
+                }
+                PathNode child = node.children.get(name.toLowerCase());
+                if (child == null) {
+                    child = new PathNode(node, node.children.size());
+                    node.children.put(name.toLowerCase(), child);
+                }
+                node = child;
+            }
+            if (node.leafOI != null || !node.children.isEmpty()) {
+                throw new UDFArgumentException(getFuncName() + ": Path conflicts with another path: " + spec);
+            }
+            node.leafOI = oi;
+            return node;
+        }
+
+        ObjectInspector toObjectInspector() {
+            if (leafOI != null) {
+                return leafOI;
+            }
+            List<ObjectInspector> ois = new ArrayList<>(children.size());
+            for (PathNode child : children.values()) {
+                ois.add(child.toObjectInspector());
+            }
+            return ObjectInspectorFactory.getStandardStructObjectInspector(new ArrayList<>(children.keySet()), ois);
+        }
+
+        int[] indexPath() {
+            int depth = 0;
+            for (PathNode node = this; node.parent != null; node = node.parent) {
+                depth++;
+            }
+            int[] path = new int[depth];
+            for (PathNode node = this; node.parent != null; node = node.parent) {
+                path[--depth] = node.index;
+            }
+            return path;
+        }
+    }
+}
@@ -17,42 +17,138 @@
  */
 package org.apache.hadoop.hive.ql.udf.generic;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedExpressions;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorUDFJsonRead;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorUDFJsonReadOptions;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.json.HiveJsonReader;
 import org.apache.hadoop.hive.serde2.json.HiveJsonReader.Feature;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BinaryObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorConverter.TextConverter;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Reporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * Parses a json string representation into a Hive struct.
+ * Parses a json string representation into a Hive struct. The json may also be
+ * given as a binary holding UTF-8 text.
+ * <p>
+ * An optional third constant argument holds comma separated options:
+ * <ul>
+ * <li>{@value #IGNORE_UNKNOWN_FIELDS}: object fields that are not part of the
+ * type are skipped at the token level instead of failing the row, so only the
+ * requested fields of a large document are materialized.</li>
+ * <li>{@value #LAZY}: structs and arrays are returned unparsed and their
+ * fields and elements are only parsed when they are read, so a query that
+ * reads a few fields, or filters most rows out, does not pay for the rest of
+ * the document. The result refers to the input of the current row.</li>
+ * <li>{@value #NULL_ON_ERROR}: a row that is not valid json or does not match
+ * the type is returned as null instead of failing the query. Such rows are
+ * counted and reported as the {@value #MALFORMED_ROWS} counter of the
+ * {@value #COUNTER_GROUP} group when the function is closed. It cannot be
+ * combined with {@value #LAZY}.</li>
+ * <li>{@value #STRUCTURAL_INDEX}: struct documents of at least
+ * {@link HiveJsonReader#STRUCTURAL_INDEX_MIN_LENGTH} bytes are indexed in a
+ * fast first pass and only the declared fields are parsed, see
+ * {@link Feature#STRUCTURAL_INDEX}. Meant for large documents of which few
+ * fields are read, usually together with {@value #IGNORE_UNKNOWN_FIELDS}.</li>
+ * </ul>
+ * When {@link #REUSE_OUTPUT} is set in the job configuration, every row is parsed into the objects
+ * returned for the previous row wherever the shape allows. The result is then only valid until the
+ * next call to {@code evaluate}.
+ * <p>
+ * When {@link #CACHE_ENTRIES} is set to a positive number, results are kept in an LRU cache keyed
+ * by the input bytes, bounded by that many entries and by {@link #CACHE_BYTES} bytes of input. A
+ * repeated document then returns the same result object as before, which callers must not modify.
+ * Documents read as null are cached as well, so a repeated bad row under {@value #NULL_ON_ERROR}
+ * is not parsed again; it still counts as a malformed row.
+ * The cache takes precedence over {@link #REUSE_OUTPUT}. Hits and misses are reported as counters
+ * of the {@value #COUNTER_GROUP} group when the function is closed.
+ * <p>
+ * In vectorized queries the function runs as {@link VectorUDFJsonRead}, which parses into the
+ * output column vectors directly; the reuse and cache settings do not apply there.
  */
-@Description(name = "json_read", value = "_FUNC_(json,type) - "
+@Description(name = "json_read", value = "_FUNC_(json,type[,options]) - "
         + "Parses the given json according to the given complex type specification", extended = ""
         + "Parsed as null: if the json is null, it is the empty string or if it contains only whitespaces\n"
+        + "Options (comma separated):\n"
+        + "  " + GenericUDFJsonRead.IGNORE_UNKNOWN_FIELDS + " - skip fields that are not declared in the type\n"
+        + "  " + GenericUDFJsonRead.LAZY + " - parse struct fields and array elements only when they are read\n"
+        + "  " + GenericUDFJsonRead.NULL_ON_ERROR + " - return null for malformed rows and count them\n"
+        + "  " + GenericUDFJsonRead.STRUCTURAL_INDEX + " - index large documents first and parse only the declared fields\n"
         + "Example:\n" + "select _FUNC_('[]','array<struct<a:string>>' ")
+@VectorizedExpressions({ VectorUDFJsonRead.class, VectorUDFJsonReadOptions.class })
 public class GenericUDFJsonRead extends GenericUDF {
 
+    public static final String IGNORE_UNKNOWN_FIELDS = "ignore_unknown_fields";
+
+    public static final String LAZY = "lazy";
+
+    public static final String NULL_ON_ERROR = "null_on_error";
+
+    public static final String STRUCTURAL_INDEX = "structural_index";
+
+    public static final String REUSE_OUTPUT = "hive.udf.json.read.reuse.output";
+
+    public static final String CACHE_ENTRIES = "hive.udf.json.read.cache.entries";
+
+    public static final String CACHE_BYTES = "hive.udf.json.read.cache.bytes";
+
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+
+    public static final String COUNTER_GROUP = "JSON_READ";
+
+    public static final String MALFORMED_ROWS = "MALFORMED_ROWS";
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenericUDFJsonRead.class);
+
+    /** Cached for a document read as null, which the cache would not tell apart from a miss. */
+    private static final Object NULL_RESULT = new Object();
+
+    /** Cached for a document read as null because of {@value #NULL_ON_ERROR}. */
+    private static final Object MALFORMED_RESULT = new Object();
+
+    private PrimitiveObjectInspector inputOI;
     private TextConverter inputConverter;
     private HiveJsonReader jsonReader;
+    private boolean lazy;
+    private transient MapredContext context;
+    private transient boolean reuseOutput;
+    private transient int cacheEntries;
+    private transient long cacheBytes;
+    private transient JsonReadCache cache;
+    private transient long cachedMalformedRows;
 
     @Override
     public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
 
-        checkArgsSize(arguments, 2, 2);
+        checkArgsSize(arguments, 2, 3);
         checkArgPrimitive(arguments, 0);
-        checkArgPrimitive(arguments, 1);
-        if (!ObjectInspectorUtils.isConstantObjectInspector(arguments[1])) {
-            throw new UDFArgumentTypeException(1, getFuncName() + " argument 2 may only be a constant");
+        for (int i = 1; i < arguments.length; i++) {
+            checkArgPrimitive(arguments, i);
+            if (!ObjectInspectorUtils.isConstantObjectInspector(arguments[i])) {
+                throw new UDFArgumentTypeException(i, getFuncName() + " argument " + (i + 1) + " may only be a constant");
+            }
         }
 
-        inputConverter = new TextConverter((PrimitiveObjectInspector) arguments[0]);
+        inputOI = (PrimitiveObjectInspector) arguments[0];
+        inputConverter = new TextConverter(inputOI);
         String typeStr = getConstantStringValue(arguments, 1);
 
         try {
@@ -64,8 +160,68 @@ public class GenericUDFJsonRead extends GenericUDF {
         } catch (Exception e) {
             throw new UDFArgumentException(getFuncName() + ": Error parsing typestring: " + e.getMessage());
         }
+        if (arguments.length > 2) {
+            initOptions(getConstantStringValue(arguments, 2));
+        }
+        initOutput();
 
-        return jsonReader.getObjectInspector();
+        return lazy ? jsonReader.getLazyObjectInspector() : jsonReader.getObjectInspector();
+    }
+
+    @Override
+    public void configure(MapredContext context) {
+        this.context = context;
+        reuseOutput = context.getJobConf().getBoolean(REUSE_OUTPUT, false);
+        cacheEntries = context.getJobConf().getInt(CACHE_ENTRIES, 0);
+        cacheBytes = context.getJobConf().getLong(CACHE_BYTES, DEFAULT_CACHE_BYTES);
+        if (jsonReader != null) {
+            initOutput();
+        }
+    }
+
+    /**
+     * Applies the result cache and reuse settings; {@code configure} may run before or after
+     * {@code initialize}.
+     */
+    private void initOutput() {
+        if (cacheEntries > 0) {
+            if (cache == null) {
+                cache = new JsonReadCache(cacheEntries, cacheBytes);
+            }
+            // cached results must not be filled in again
+            jsonReader.disable(Feature.REUSE_OBJECTS);
+        } else if (reuseOutput) {
+            jsonReader.enable(Feature.REUSE_OBJECTS);
+        }
+    }
+
+    private void initOptions(String options) throws UDFArgumentException {
+        if (options == null) {
+            return;
+        }
+        for (String option : options.split(",")) {
+            switch (option.trim().toLowerCase()) {
+                case "":
+                    break;
+                case IGNORE_UNKNOWN_FIELDS:
+                    jsonReader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+                    break;
+                case LAZY:
+                    lazy = true;
+                    break;
+                case NULL_ON_ERROR:
+                    jsonReader.enable(Feature.NULL_ON_ERROR);
+                    break;
+                case STRUCTURAL_INDEX:
+                    jsonReader.enable(Feature.STRUCTURAL_INDEX);
+                    break;
+                default:
+                    throw new UDFArgumentException(getFuncName() + ": Unknown option: " + option);
+            }
+        }
+        if (lazy && jsonReader.isEnabled(Feature.NULL_ON_ERROR)) {
+            throw new UDFArgumentException(getFuncName() + ": " + LAZY + " cannot be combined with " + NULL_ON_ERROR);
+        }
     }
 
     @Override
@@ -75,17 +231,106 @@ public class GenericUDFJsonRead extends GenericUDF {
             return null;
         }
 
+        // The parser reads the UTF-8 bytes backing the writable in place
+        final byte[] bytes;
+        final int length;
+        switch (inputOI.getPrimitiveCategory()) {
+            case STRING:
+                Text text = ((StringObjectInspector) inputOI).getPrimitiveWritableObject(valObject);
+                bytes = text.getBytes();
+                length = text.getLength();
+                break;
+            case BINARY:
+                BytesWritable binary = ((BinaryObjectInspector) inputOI).getPrimitiveWritableObject(valObject);
+                bytes = binary.getBytes();
+                length = binary.getLength();
+                break;
+            default:
+                Text converted = inputConverter.convert(valObject);
+                bytes = converted.getBytes();
+                length = converted.getLength();
+                break;
+        }
+
         try {
-            String text = inputConverter.convert(valObject).toString();
-            if (text.trim().length() == 0) {
+            if (isBlank(bytes, 0, length)) {
+                return null;
+            }
+            if (cache == null) {
+                return parse(bytes, length);
+            }
+            Object result = cache.get(bytes, length);
+            if (result == null) {
+                long errors = jsonReader.getErrorCount();
+                // a cached lazy result outlives the row, so it gets its own copy of the input
+                result = parse(lazy ? Arrays.copyOf(bytes, length) : bytes, length);
+                if (result != null) {
+                    cache.put(bytes, length, result);
+                } else {
+                    cache.put(bytes, length, jsonReader.getErrorCount() > errors ? MALFORMED_RESULT : NULL_RESULT);
+                }
+                return result;
+            }
+            if (result == MALFORMED_RESULT) {
+                cachedMalformedRows++;
                 return null;
             }
-            return jsonReader.parseStruct(text);
+            return result == NULL_RESULT ? null : result;
         } catch (Exception e) {
             throw new HiveException("Error parsing json: " + e.getMessage(), e);
         }
     }
 
+    private Object parse(byte[] bytes, int length) throws IOException, SerDeException {
+        return lazy ? jsonReader.parseLazy(bytes, 0, length) : jsonReader.parseStruct(bytes, 0, length);
+    }
+
+    public long getCacheHits() {
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    public long getMalformedRows() {
+        return (jsonReader == null ? 0 : jsonReader.getErrorCount()) + cachedMalformedRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Reporter reporter = context == null ? null : context.getReporter();
+        if (cache != null) {
+            LOG.info("json_read cache: {} hits, {} misses, {} entries, {} bytes",
+                    cache.getHits(), cache.getMisses(), cache.size(), cache.getBytes());
+            if (reporter != null) {
+                reporter.incrCounter(COUNTER_GROUP, "CACHE_HITS", cache.getHits());
+                reporter.incrCounter(COUNTER_GROUP, "CACHE_MISSES", cache.getMisses());
+            }
+        }
+        if (getMalformedRows() > 0) {
+            LOG.warn("json_read: {} malformed rows were read as null", getMalformedRows());
+            if (reporter != null) {
+                reporter.incrCounter(COUNTER_GROUP, MALFORMED_ROWS, getMalformedRows());
+            }
+        }
+    }
+
+    /**
+     * Same test as {@code String.trim().isEmpty()}: every byte is a control
+     * character or a space. Bytes of multi-byte UTF-8 sequences are never blank.
+     * Shared with the vectorized expression so that both treat the same rows
+     * as null.
+     */
+    public static boolean isBlank(byte[] bytes, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if ((bytes[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String getDisplayString(String[] children) {
         return getStandardDisplayString("json_read", children);
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.json.HiveJsonWriter;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Serializes any Hive value to a json string, the write side of
+ * {@link GenericUDFJsonRead}.
+ * <p>
+ * Structs become objects named after their fields, arrays become arrays and
+ * maps become objects keyed by the text of the map keys. Dates, timestamps and
+ * the character types are written as strings and binaries as base64 strings.
+ * <p>
+ * The json is written as UTF-8 into a buffer owned by this instance and copied
+ * into the same {@link Text} for every row, without an intermediate String.
+ */
+@Description(name = "to_json", value = "_FUNC_(value) - Serializes the given value to a json string",
+        extended = "Returns null if the value is null\n"
+        + "Example:\n"
+        + "  > SELECT _FUNC_(named_struct('a', 1, 'b', array('x', 'y')));\n"
+        + "  {\"a\":1,\"b\":[\"x\",\"y\"]}")
+public class GenericUDFJsonWrite extends GenericUDF {
+
+    private final Text result = new Text();
+
+    private ObjectInspector inputOI;
+    private HiveJsonWriter jsonWriter;
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        checkArgsSize(arguments, 1, 1);
+        inputOI = arguments[0];
+        jsonWriter = new HiveJsonWriter();
+        return PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Object value = arguments[0].get();
+        if (value == null) {
+            return null;
+        }
+        try {
+            jsonWriter.write(value, inputOI, result);
+        } catch (SerDeException e) {
+            throw new HiveException("Error writing json: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return getStandardDisplayString("to_json", children);
+    }
+}
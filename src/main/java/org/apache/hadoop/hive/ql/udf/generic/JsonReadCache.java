@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * LRU cache of json_read results keyed by the raw input bytes. It is bounded both by the number of
+ * entries and by the total size of the cached documents. Lookups compare the bytes in place, so a
+ * hit allocates nothing; only a miss that is stored copies the document. Results are never null,
+ * callers cache a sentinel of their own for documents that are read as null.
+ */
+final class JsonReadCache {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Object> entries;
+    private final Key probe = new Key();
+
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    JsonReadCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return the cached result for the document or null, counting a hit or a miss
+     */
+    Object get(byte[] data, int length) {
+        probe.set(data, length);
+        Object result = entries.get(probe);
+        // the caller's buffer is reused for other rows, the probe must not keep it
+        probe.clear();
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Caches a result for the document; null results are ignored.
+     */
+    void put(byte[] data, int length, Object result) {
+        if (result == null || length > maxBytes) {
+            return;
+        }
+        Key key = new Key();
+        key.set(Arrays.copyOf(data, length), length);
+        entries.put(key, result);
+        bytes += length;
+
+        Iterator<Map.Entry<Key, Object>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= it.next().getKey().length;
+            it.remove();
+        }
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Document bytes with their hash. The lookup probe points at the caller's buffer; stored keys
+     * own a copy.
+     */
+    private static final class Key {
+        private byte[] data;
+        private int length;
+        private int hash;
+
+        void set(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+            this.hash = WritableComparator.hashBytes(data, length);
+        }
+
+        void clear() {
+            this.data = null;
+            this.length = 0;
+            this.hash = 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && WritableComparator.compareBytes(data, 0, length, other.data, 0, other.length) == 0;
+        }
+    }
+}
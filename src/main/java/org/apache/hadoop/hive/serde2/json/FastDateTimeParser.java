@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+/**
+ * Parses the common fixed date and timestamp layouts straight from a character
+ * buffer, without creating Strings or formatter state:
+ * <ul>
+ * <li>{@code yyyy-MM-dd} for dates</li>
+ * <li>{@code yyyy-MM-dd HH:mm:ss[.fffffffff]} for timestamps</li>
+ * <li>{@code yyyy-MM-ddTHH:mm:ss[.fffffffff][Z]} for timestamps</li>
+ * </ul>
+ * The values are read the way {@code Timestamp.valueOf} and
+ * {@code Date.valueOf} read them; a trailing {@code Z} keeps the UTC wall clock
+ * time. Anything else, including out of range fields that Hive resolves
+ * leniently, is rejected so that the caller can fall back to the generic
+ * parser.
+ * <p>
+ * The result of a successful parse is kept in this object, which makes an
+ * instance not thread safe.
+ */
+final class FastDateTimeParser {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private int epochDay;
+    private long epochSecond;
+    private int nanos;
+
+    /**
+     * Parses {@code yyyy-MM-dd}, optionally followed by a space and anything
+     * else, which {@code Date.valueOf} ignores.
+     *
+     * @return true if the text was parsed; the result is in {@link #getEpochDay()}
+     */
+    boolean parseDate(final char[] chars, final int offset, final int length) {
+        if (length < 10 || (length > 10 && chars[offset + 10] != ' ')) {
+            return false;
+        }
+        return parseDatePart(chars, offset);
+    }
+
+    /**
+     * Parses one of the timestamp layouts.
+     *
+     * @return true if the text was parsed; the result is in
+     *         {@link #getEpochSecond()} and {@link #getNanos()}
+     */
+    boolean parseTimestamp(final char[] chars, final int offset, final int length) {
+        if (length < 19 || !parseDatePart(chars, offset)) {
+            return false;
+        }
+
+        int end = offset + length;
+        final char separator = chars[offset + 10];
+        if (separator == 'T') {
+            if (chars[end - 1] == 'Z') {
+                end--;
+            }
+        } else if (separator != ' ') {
+            return false;
+        }
+        if (end - offset < 19 || chars[offset + 13] != ':' || chars[offset + 16] != ':') {
+            return false;
+        }
+        final int hour = twoDigits(chars, offset + 11);
+        final int minute = twoDigits(chars, offset + 14);
+        final int second = twoDigits(chars, offset + 17);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return false;
+        }
+
+        int fraction = 0;
+        int pos = offset + 19;
+        if (pos < end) {
+            if (chars[pos++] != '.' || pos == end || end - pos > 9) {
+                return false;
+            }
+            int scale = 100000000;
+            for (; pos < end; pos++, scale /= 10) {
+                final int digit = chars[pos] - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                fraction += digit * scale;
+            }
+        }
+
+        epochSecond = (long) epochDay * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+        nanos = fraction;
+        return true;
+    }
+
+    int getEpochDay() {
+        return epochDay;
+    }
+
+    long getEpochSecond() {
+        return epochSecond;
+    }
+
+    int getNanos() {
+        return nanos;
+    }
+
+    private boolean parseDatePart(final char[] chars, final int offset) {
+        if (chars[offset + 4] != '-' || chars[offset + 7] != '-') {
+            return false;
+        }
+        final int high = twoDigits(chars, offset);
+        final int low = twoDigits(chars, offset + 2);
+        final int month = twoDigits(chars, offset + 5);
+        final int day = twoDigits(chars, offset + 8);
+        if (high < 0 || low < 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        final int year = high * 100 + low;
+        if (year == 0 || day > lengthOfMonth(year, month)) {
+            return false;
+        }
+        epochDay = epochDay(year, month, day);
+        return true;
+    }
+
+    /**
+     * @return the value of two decimal digits or a negative value
+     */
+    private static int twoDigits(final char[] chars, final int offset) {
+        final int tens = chars[offset] - '0';
+        final int ones = chars[offset + 1] - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return -1;
+        }
+        return tens * 10 + ones;
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, for years 1 to
+     * 9999.
+     */
+    static int epochDay(final int year, final int month, final int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = y / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
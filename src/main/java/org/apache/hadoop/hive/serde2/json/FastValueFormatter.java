@@ -0,0 +1,585 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.math.BigInteger;
+
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+
+/**
+ * Formats floats, doubles, decimals, dates and timestamps into a character
+ * buffer that is kept in this object, without creating Strings or formatter
+ * state:
+ * <ul>
+ * <li>Floats and doubles in the layout of {@code Float.toString} and
+ * {@code Double.toString}, with the shortest decimal that reads back as the
+ * same value. The digits are found with the Schubfach algorithm by Raffaello
+ * Giulietti, which is what {@code toString} uses since JDK 19; older JDKs
+ * sometimes print more digits than needed.</li>
+ * <li>Decimals in the plain layout of {@code HiveDecimal.toString}.</li>
+ * <li>Dates and timestamps in the layouts of Hive's {@code Date.toString}
+ * and {@code Timestamp.toString}, for the years 1 to 9999. Other years are
+ * rejected so that the caller can fall back to {@code toString}.</li>
+ * </ul>
+ * The result of a format call is in {@link #getChars()} up to the returned
+ * length, which makes an instance not thread safe.
+ */
+final class FastValueFormatter {
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    // Schubfach constants for doubles, see Giulietti, "The Schubfach way to
+    // render doubles"
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final int BQ_MASK = 0x7FF;
+    private static final long T_MASK = C_MIN - 1;
+    private static final long C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final int H = 17;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final long MASK_32 = (1L << 32) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+
+    // the same for floats, whose k range is within the one of doubles
+    private static final int F_P = 24;
+    private static final int F_Q_MIN = -149;
+    private static final int F_C_MIN = 1 << (F_P - 1);
+    private static final int F_BQ_MASK = 0xFF;
+    private static final int F_T_MASK = F_C_MIN - 1;
+    private static final int F_C_TINY = 8;
+    private static final int F_H = 9;
+
+    private static final long[] POW10 = new long[H + 1];
+
+    /**
+     * For every k from {@link #K_MIN} to {@link #K_MAX}, the 126 bit
+     * approximation g of 10^-k from above, with (g - 1) 2^r <= 10^-k < g 2^r
+     * and 2^125 <= g - 1 < 2^126, split into its high and low 63 bits.
+     */
+    private static final long[] G = new long[(K_MAX - K_MIN + 1) * 2];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            final int shift = 125 - flog2pow10(-k);
+            BigInteger num = k <= 0 ? BigInteger.TEN.pow(-k) : BigInteger.ONE;
+            BigInteger den = k <= 0 ? BigInteger.ONE : BigInteger.TEN.pow(k);
+            if (shift >= 0) {
+                num = num.shiftLeft(shift);
+            } else {
+                den = den.shiftLeft(-shift);
+            }
+            final BigInteger g = num.divide(den).add(BigInteger.ONE);
+            G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+            G[(k - K_MIN) << 1 | 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    private final char[] chars = new char[HiveDecimal.SCRATCH_BUFFER_LEN_TO_BYTES];
+    private final byte[] bytes = new byte[HiveDecimal.SCRATCH_BUFFER_LEN_TO_BYTES];
+    private int length;
+
+    char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * Formats a finite double like {@code Double.toString}.
+     *
+     * @return the length of the text in {@link #getChars()}
+     */
+    int formatDouble(final double v) {
+        length = 0;
+        final long bits = Double.doubleToRawLongBits(v);
+        final long t = bits & T_MASK;
+        final int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+        if (bits < 0) {
+            chars[length++] = '-';
+        }
+        if (bq != 0) {
+            // normal value
+            final int mq = -Q_MIN + 1 - bq;
+            final long c = C_MIN | t;
+            if (0 < mq && mq < P) {
+                // integers are their own shortest decimal
+                final long f = c >> mq;
+                if (f << mq == c) {
+                    toChars(f, 0);
+                    return length;
+                }
+            }
+            toDecimal(-mq, c, 0);
+        } else if (t != 0) {
+            // subnormal value
+            if (t < C_TINY) {
+                toDecimal(Q_MIN, 10 * t, -1);
+            } else {
+                toDecimal(Q_MIN, t, 0);
+            }
+        } else {
+            chars[length++] = '0';
+            chars[length++] = '.';
+            chars[length++] = '0';
+        }
+        return length;
+    }
+
+    /**
+     * Formats a finite float like {@code Float.toString}.
+     *
+     * @return the length of the text in {@link #getChars()}
+     */
+    int formatFloat(final float v) {
+        length = 0;
+        final int bits = Float.floatToRawIntBits(v);
+        final int t = bits & F_T_MASK;
+        final int bq = (bits >>> (F_P - 1)) & F_BQ_MASK;
+        if (bits < 0) {
+            chars[length++] = '-';
+        }
+        if (bq != 0) {
+            final int mq = -F_Q_MIN + 1 - bq;
+            final int c = F_C_MIN | t;
+            if (0 < mq && mq < F_P) {
+                final int f = c >> mq;
+                if (f << mq == c) {
+                    toChars(f, 0);
+                    return length;
+                }
+            }
+            toDecimal(-mq, c, 0);
+        } else if (t != 0) {
+            if (t < F_C_TINY) {
+                toDecimal(F_Q_MIN, 10 * t, -1);
+            } else {
+                toDecimal(F_Q_MIN, t, 0);
+            }
+        } else {
+            chars[length++] = '0';
+            chars[length++] = '.';
+            chars[length++] = '0';
+        }
+        return length;
+    }
+
+    /**
+     * The float variant of {@link #toDecimal(int, long, int)}, which gets by
+     * with the high 63 bits of g.
+     */
+    private void toDecimal(final int q, final int c, final int dk) {
+        final int out = c & 0x1;
+        final long cb = (long) c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int k;
+        if (c != F_C_MIN || q == F_Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        final int h = q + flog2pow10(-k) + 33;
+
+        final long g = G[(k - K_MIN) << 1] + 1;
+
+        final int vb = rop(g, cb << h);
+        final int vbl = rop(g, cbl << h);
+        final int vbr = rop(g, cbr << h);
+
+        final int s = vb >> 2;
+        if (s >= 100) {
+            final int sp10 = 10 * (int) (s * 1_717_986_919L >>> 34);
+            final int tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                toChars(upin ? sp10 : tp10, k);
+                return;
+            }
+        }
+        final int t = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            toChars(uin ? s : t, k + dk);
+            return;
+        }
+        final int cmp = vb - (s + t << 1);
+        toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+
+    /**
+     * Rounds g cp 2^-95 to odd.
+     */
+    private static int rop(final long g, final long cp) {
+        final long x1 = multiplyHigh(g, cp);
+        final long vbp = x1 >>> 31;
+        return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    /**
+     * Writes f 10^e in the layout of {@code Float.toString}.
+     */
+    private void toChars(int f, int e) {
+        int len = flog10pow2(Integer.SIZE - Integer.numberOfLeadingZeros(f));
+        if (f >= POW10[len]) {
+            len++;
+        }
+        // make f a 9 digit number, f 10^(e - 9) = 0.f 10^e
+        f *= (int) POW10[F_H - len];
+        e += len;
+
+        // split f into its first digit h and the next 8 digits m
+        final int h = (int) (f * 1_441_151_881L >>> 57);
+        final int m = f - 100_000_000 * h;
+        appendDecimal(h, m, 0, e);
+    }
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c 2^q and writes
+     * it, see section 9 of the paper.
+     */
+    private void toDecimal(final int q, final long c, final int dk) {
+        final int out = (int) c & 0x1;
+        final long cb = c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            // the interval is asymmetric at powers of two
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        final int h = q + flog2pow10(-k) + 2;
+
+        final long g1 = G[(k - K_MIN) << 1];
+        final long g0 = G[(k - K_MIN) << 1 | 1];
+
+        final long vb = rop(g1, g0, cb << h);
+        final long vbl = rop(g1, g0, cbl << h);
+        final long vbr = rop(g1, g0, cbr << h);
+
+        final long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit less first
+            final long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            final long tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                toChars(upin ? sp10 : tp10, k);
+                return;
+            }
+        }
+        final long t = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            toChars(uin ? s : t, k + dk);
+            return;
+        }
+        // both are in the interval, take the closer one or the even one
+        final long cmp = vb - (s + t << 1);
+        toChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+
+    /**
+     * Rounds (g1 2^63 + g0) cp 2^-127 to odd.
+     */
+    private static long rop(final long g1, final long g0, final long cp) {
+        final long x1 = multiplyHigh(g0, cp);
+        final long y0 = g1 * cp;
+        final long y1 = multiplyHigh(g1, cp);
+        final long z = (y0 >>> 1) + x1;
+        final long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * Writes f 10^e in the layout of {@code Double.toString}.
+     */
+    private void toChars(long f, int e) {
+        // 10^(len - 1) <= f < 10^len
+        int len = flog10pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+        if (f >= POW10[len]) {
+            len++;
+        }
+        // make f a 17 digit number, f 10^(e - 17) = 0.f 10^e
+        f *= POW10[H - len];
+        e += len;
+
+        // split f into its first digit h, the next 8 digits m and the last 8 digits l
+        final long hm = multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        final int l = (int) (f - 100_000_000L * hm);
+        final int h = (int) (hm * 1_441_151_881L >>> 57);
+        final int m = (int) (hm - 100_000_000 * h);
+        appendDecimal(h, m, l, e);
+    }
+
+    /**
+     * Writes 0.hml 10^e, with h one digit and m and l eight digits each.
+     */
+    private void appendDecimal(final int h, final int m, final int l, int e) {
+        if (0 < e && e <= 7) {
+            // plain layout without leading zeroes
+            appendDigit(h);
+            int y = y(m);
+            int i = 1;
+            for (; i < e; i++) {
+                final int d = 10 * y;
+                appendDigit(d >>> 28);
+                y = d & MASK_28;
+            }
+            chars[length++] = '.';
+            for (; i <= 8; i++) {
+                final int d = 10 * y;
+                appendDigit(d >>> 28);
+                y = d & MASK_28;
+            }
+            lowDigits(l);
+        } else if (-3 < e && e <= 0) {
+            // plain layout with leading zeroes
+            appendDigit(0);
+            chars[length++] = '.';
+            for (; e < 0; e++) {
+                appendDigit(0);
+            }
+            appendDigit(h);
+            append8Digits(m);
+            lowDigits(l);
+        } else {
+            // computerized scientific notation
+            appendDigit(h);
+            chars[length++] = '.';
+            append8Digits(m);
+            lowDigits(l);
+            exponent(e - 1);
+        }
+    }
+
+    private void lowDigits(final int l) {
+        if (l != 0) {
+            append8Digits(l);
+        }
+        // remove trailing zeroes, but keep one digit after the point
+        while (chars[length - 1] == '0') {
+            length--;
+        }
+        if (chars[length - 1] == '.') {
+            length++;
+        }
+    }
+
+    /**
+     * Writes the 8 digits of m from left to right, one multiplication per
+     * digit.
+     */
+    private void append8Digits(final int m) {
+        int y = y(m);
+        for (int i = 0; i < 8; i++) {
+            final int d = 10 * y;
+            appendDigit(d >>> 28);
+            y = d & MASK_28;
+        }
+    }
+
+    /**
+     * @return floor((a + 1) 2^28 / 10^8) - 1, for a < 10^8
+     */
+    private static int y(final int a) {
+        return (int) (multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    private void exponent(int e) {
+        chars[length++] = 'E';
+        if (e < 0) {
+            chars[length++] = '-';
+            e = -e;
+        }
+        if (e >= 100) {
+            final int d = e * 1_311 >>> 17;
+            appendDigit(d);
+            e -= 100 * d;
+            appendTwoDigits(e);
+        } else if (e >= 10) {
+            appendTwoDigits(e);
+        } else {
+            appendDigit(e);
+        }
+    }
+
+    /**
+     * Formats a decimal like {@code HiveDecimal.toString}.
+     *
+     * @return the length of the text in {@link #getChars()}
+     */
+    int formatDecimal(final HiveDecimalWritable value) {
+        return copyBytes(value.toBytes(bytes));
+    }
+
+    /**
+     * Formats a decimal like {@code HiveDecimal.toString}.
+     *
+     * @return the length of the text in {@link #getChars()}
+     */
+    int formatDecimal(final HiveDecimal value) {
+        return copyBytes(value.toBytes(bytes));
+    }
+
+    private int copyBytes(final int start) {
+        length = bytes.length - start;
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) bytes[start + i];
+        }
+        return length;
+    }
+
+    /**
+     * Formats a date as {@code yyyy-MM-dd}.
+     *
+     * @param epochDay Days since 1970-01-01
+     * @return the length of the text in {@link #getChars()} or -1 if the year
+     *         is out of range
+     */
+    int formatDate(final long epochDay) {
+        length = 0;
+        return appendDate(epochDay) ? length : -1;
+    }
+
+    /**
+     * Formats a timestamp as {@code yyyy-MM-dd HH:mm:ss[.fffffffff]}, with
+     * the trailing zeroes of the fraction removed.
+     *
+     * @param epochSecond Seconds since 1970-01-01 00:00:00
+     * @param nanos Nanoseconds of the second
+     * @return the length of the text in {@link #getChars()} or -1 if the year
+     *         is out of range
+     */
+    int formatTimestamp(final long epochSecond, final int nanos) {
+        length = 0;
+        final long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (!appendDate(epochDay)) {
+            return -1;
+        }
+        final int secondOfDay = (int) (epochSecond - epochDay * SECONDS_PER_DAY);
+        chars[length++] = ' ';
+        appendTwoDigits(secondOfDay / 3600);
+        chars[length++] = ':';
+        appendTwoDigits(secondOfDay / 60 % 60);
+        chars[length++] = ':';
+        appendTwoDigits(secondOfDay % 60);
+        if (nanos != 0) {
+            chars[length++] = '.';
+            int scale = 100_000_000;
+            int rest = nanos;
+            while (rest != 0) {
+                final int digit = rest / scale;
+                appendDigit(digit);
+                rest -= digit * scale;
+                scale /= 10;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Civil date of an epoch day in the proleptic Gregorian calendar, see
+     * Howard Hinnant's {@code civil_from_days}.
+     */
+    private boolean appendDate(final long epochDay) {
+        final long z = epochDay + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final int dayOfEra = (int) (z - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 1 || year > 9999) {
+            return false;
+        }
+        appendTwoDigits((int) year / 100);
+        appendTwoDigits((int) year % 100);
+        chars[length++] = '-';
+        appendTwoDigits(month);
+        chars[length++] = '-';
+        appendTwoDigits(day);
+        return true;
+    }
+
+    private void appendDigit(final int digit) {
+        chars[length++] = (char) ('0' + digit);
+    }
+
+    private void appendTwoDigits(final int value) {
+        final int tens = value * 103 >>> 10;
+        chars[length++] = (char) ('0' + tens);
+        chars[length++] = (char) ('0' + value - 10 * tens);
+    }
+
+    /**
+     * @return floor(e log10(2))
+     */
+    private static int flog10pow2(final int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    /**
+     * @return floor(e log10(2) + log10(3/4))
+     */
+    private static int flog10threeQuartersPow2(final int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /**
+     * @return floor(e log2(10))
+     */
+    private static int flog2pow10(final int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * The high 64 bits of the signed 128 bit product, as
+     * {@code Math.multiplyHigh} of JDK 9.
+     */
+    private static long multiplyHigh(final long x, final long y) {
+        final long x1 = x >> 32;
+        final long x2 = x & 0xFFFFFFFFL;
+        final long y1 = y >> 32;
+        final long y2 = y & 0xFFFFFFFFL;
+        final long z2 = x2 * y2;
+        final long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        final long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+}
@@ -22,23 +22,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.hive.common.type.Date;
 import org.apache.hadoop.hive.common.type.HiveChar;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
@@ -47,25 +41,37 @@ import org.apache.hadoop.hive.common.type.Timestamp;
 import org.apache.hadoop.hive.common.type.TimestampTZ;
 import org.apache.hadoop.hive.serde2.JsonSerDe;
 import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DateWritableV2;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritableV2;
 import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.typeinfo.BaseCharTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
 import org.apache.hadoop.hive.serde2.typeinfo.TimestampLocalTZTypeInfo;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hive.common.util.TimestampParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeType;
-import com.fasterxml.jackson.databind.node.TextNode;
 import com.google.common.base.Preconditions;
 
 /**
@@ -101,26 +107,65 @@ public class HiveJsonReader {
     private static final Logger LOG =
             LoggerFactory.getLogger(HiveJsonReader.class);
 
-    private final Map<Pair<StructObjectInspector, String>, StructField> discoveredFields =
-            new HashMap<>();
-
-    private final Set<Pair<StructObjectInspector, String>> discoveredUnknownFields =
-            new HashSet<>();
-
     private final EnumSet<Feature> features = EnumSet.noneOf(Feature.class);
 
     private final ObjectMapper objectMapper;
 
     private final TimestampParser tsParser;
+
+    /**
+     * Whether {@link #tsParser} is the default parser, in which case the
+     * common timestamp layouts are parsed by {@link FastDateTimeParser}.
+     */
+    private boolean fastTimestamps;
     private BinaryEncoding binaryEncoding;
     private final ObjectInspector oi;
 
+    /**
+     * Readers compiled from {@link #oi} for the current features; reset whenever
+     * the configuration changes.
+     */
+    private ValueReader plan;
+
+    /**
+     * ObjectInspector of the values returned by {@link #parseLazy}, compiled
+     * from {@link #oi} for the current features; reset together with
+     * {@link #plan}.
+     */
+    private ObjectInspector lazyOI;
+
+    /**
+     * With {@link Feature#REUSE_OBJECTS}, the previous non-null result that the
+     * next parse fills in again.
+     */
+    private Object lastResult;
+
+    /**
+     * Documents parsed as null because of {@link Feature#NULL_ON_ERROR}.
+     */
+    private long errorCount;
+
+    /**
+     * Thrown with {@link Feature#NULL_ON_ERROR} wherever a descriptive error
+     * would be created otherwise; it never leaves this reader.
+     */
+    final SerDeException mismatch = new MismatchSignal();
+
+    /**
+     * Kept between documents read with {@link Feature#STRUCTURAL_INDEX}.
+     */
+    private JsonStructuralIndex structuralIndex;
+
     /**
      * Enumeration that defines all on/off features for this reader.
      * <ul>
      * <li>{@link #COL_INDEX_PARSING}</li>
      * <li>{@link #PRIMITIVE_TO_WRITABLE}</li>
      * <li>{@link #IGNORE_UNKNOWN_FIELDS}</li>
+     * <li>{@link #STRINGIFY_COMPLEX_FIELDS}</li>
+     * <li>{@link #REUSE_OBJECTS}</li>
+     * <li>{@link #NULL_ON_ERROR}</li>
+     * <li>{@link #STRUCTURAL_INDEX}</li>
      * </ul>
      */
     public enum Feature {
@@ -149,16 +194,58 @@ public class HiveJsonReader {
          * enabling this feature will cause the JSON reader to treat the field as a String.
          * If the feature is disabled, an Exception will be thrown and parsing will stop.
          */
-        STRINGIFY_COMPLEX_FIELDS
+        STRINGIFY_COMPLEX_FIELDS,
+
+        /**
+         * If this feature is enabled, every parse fills in the objects returned by
+         * the previous parse wherever the shape of the data allows: struct and
+         * array lists, maps and, together with {@link #PRIMITIVE_TO_WRITABLE}, the
+         * mutable Writables of the common primitive types. A returned value is
+         * then only valid until the next parse.
+         */
+        REUSE_OBJECTS,
+
+        /**
+         * If this feature is enabled, a document that is not valid JSON or does
+         * not match the Hive schema is parsed as null and counted in
+         * {@link #getErrorCount()} instead of failing the parse. Mismatches
+         * found by this reader are then signalled with a preallocated exception
+         * without a stack trace, so that dirty input costs little more than
+         * clean input. It does not apply to {@link #parseLazy}.
+         */
+        NULL_ON_ERROR,
+
+        /**
+         * If this feature is enabled, a struct document of at least
+         * {@link #STRUCTURAL_INDEX_MIN_LENGTH} bytes passed to
+         * {@link #parseStruct(byte[], int, int)} is read in two phases: a
+         * {@link JsonStructuralIndex} of the whole document is built first, and
+         * then only the values of the declared fields are parsed, jumping over
+         * everything else. Nested structs are navigated through the index as
+         * well. The parts of the document that are skipped are only checked for
+         * balanced brackets and terminated strings.
+         */
+        STRUCTURAL_INDEX
     }
 
+    /**
+     * Documents shorter than this are parsed in one pass even with
+     * {@link Feature#STRUCTURAL_INDEX}; building the index does not pay off
+     * for them.
+     */
+    public static final int STRUCTURAL_INDEX_MIN_LENGTH = 32 * 1024;
+
     /**
      * Constructor with default the Hive default timestamp parser.
+     * Timestamps in the layouts {@code yyyy-MM-dd HH:mm:ss[.fffffffff]} and
+     * {@code yyyy-MM-ddTHH:mm:ss[.fffffffff][Z]}, and JSON integers as epoch
+     * milliseconds, are read without going through the parser.
      *
      * @param oi ObjectInspector for all the fields in the JSON object
      */
     public HiveJsonReader(ObjectInspector oi) {
         this(oi, new TimestampParser());
+        this.fastTimestamps = true;
     }
 
     /**
@@ -186,8 +273,38 @@ public class HiveJsonReader {
             throws IOException, SerDeException {
         Preconditions.checkNotNull(text);
         Preconditions.checkState(this.oi != null);
-        final JsonNode rootNode = this.objectMapper.reader().readTree(text);
-        return visitNode(rootNode, this.oi);
+        try (JsonParser parser = this.objectMapper.getFactory().createParser(text)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parse UTF-8 encoded bytes containing a complete JSON object. The bytes are
+     * read in place, for example straight from a {@code Text} backing array.
+     *
+     * @param data The buffer holding the JSON text
+     * @param offset The offset of the JSON text in the buffer
+     * @param length The length of the JSON text in bytes
+     * @return A List of Objects, one for each field in the JSON object
+     * @throws IOException Unable to parse the JSON text
+     * @throws SerDeException The SerDe is not configured correctly
+     */
+    public Object parseStruct(final byte[] data, final int offset, final int length)
+            throws IOException, SerDeException {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkState(this.oi != null);
+        if (length >= STRUCTURAL_INDEX_MIN_LENGTH && isEnabled(Feature.STRUCTURAL_INDEX)) {
+            if (this.structuralIndex == null) {
+                this.structuralIndex = new JsonStructuralIndex();
+            }
+            // documents that cannot be indexed get the one pass parse and its errors
+            if (getPlan() instanceof StructReader && this.structuralIndex.build(data, offset, length)) {
+                return read(null);
+            }
+        }
+        try (JsonParser parser = this.objectMapper.getFactory().createParser(data, offset, length)) {
+            return parse(parser);
+        }
     }
 
     /**
@@ -202,262 +319,1210 @@ public class HiveJsonReader {
             throws IOException, SerDeException {
         Preconditions.checkNotNull(in);
         Preconditions.checkState(this.oi != null);
-        final JsonNode rootNode = this.objectMapper.reader().readTree(in);
-        return visitNode(rootNode, this.oi);
+        try (JsonParser parser = this.objectMapper.getFactory().createParser(in)) {
+            return parse(parser);
+        }
     }
 
     /**
-     * Visit a node and parse it based on the provided ObjectInspector.
+     * Parse UTF-8 encoded bytes containing a complete JSON value without
+     * materializing it. Structs and arrays are returned as lazy objects that keep
+     * a reference to the buffer; the positions of their fields and elements are
+     * indexed on first access, and a field or element is only parsed when it is
+     * read, and then kept. Maps and primitive values are parsed as a whole.
+     * <p>
+     * The returned value must be read through {@link #getLazyObjectInspector()}
+     * and is only valid as long as the buffer is not modified. Errors in the
+     * parts of the document that are read lazily are thrown as unchecked
+     * exceptions by the ObjectInspector.
      *
-     * @param rootNode The root node to process
-     * @param oi The ObjectInspector to use
-     * @return The value in this node. Return value may be null, primitive, and
-     *         may be a complex type if nested.
+     * @param data The buffer holding the JSON text
+     * @param offset The offset of the JSON text in the buffer
+     * @param length The length of the JSON text in bytes
+     * @return The lazy value or null if the input holds no value
+     * @throws IOException Unable to parse the JSON text
      * @throws SerDeException The SerDe is not configured correctly
      */
-    private Object visitNode(final JsonNode rootNode, final ObjectInspector oi)
-            throws SerDeException {
-
-        if (!rootNode.isNull()) {
-            switch (oi.getCategory()) {
-                case PRIMITIVE:
-                    final Object value = visitLeafNode(rootNode, oi);
-                    return optionallyWrapWritable(value, oi);
-                case LIST:
-                    return visitArrayNode(rootNode, oi);
-                case STRUCT:
-                    return visitStructNode(rootNode, oi);
-                case MAP:
-                    return visitMapNode(rootNode, oi);
-                default:
-                    throw new SerDeException(
-                            "Parsing of: " + oi.getCategory() + " is not supported");
+    public Object parseLazy(final byte[] data, final int offset, final int length)
+            throws IOException, SerDeException {
+        Preconditions.checkNotNull(data);
+        Preconditions.checkState(this.oi != null);
+        final ObjectInspector lazy = getLazyObjectInspector();
+        try (JsonParser parser = createParser(data, offset, length)) {
+            final JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (lazy == this.oi) {
+                return this.plan.read(parser, null);
             }
+            final int start = offset + (int) parser.getTokenLocation().getByteOffset();
+            return readLazy(lazy, null, data, start, offset + length);
         }
-
-        return null;
     }
 
     /**
-     * The typical usage of this SerDe requires that it return Hadoop Writable
-     * objects. However, some uses of this SerDe want the return values to be Java
-     * primitive objects. This SerDe works explicitly in Java primitive objects
-     * and will wrap the objects in Writable containers if required.
-     *
-     * @param value The Java primitive object to wrap
-     * @param oi The ObjectInspector provides the type to wrap into
-     * @return A Hadoop Writable if required; otherwise the object itself
+     * @return the ObjectInspector of the values returned by {@link #parseLazy}
      */
-    private Object optionallyWrapWritable(final Object value,
-                                          final ObjectInspector oi) {
-        if (!isEnabled(Feature.PRIMITIVE_TO_WRITABLE)) {
-            return value;
+    public ObjectInspector getLazyObjectInspector() {
+        if (this.lazyOI == null) {
+            getPlan();
+            this.lazyOI = compileLazy(this.oi);
         }
+        return this.lazyOI;
+    }
 
-        final PrimitiveObjectInspector poi = (PrimitiveObjectInspector) oi;
-        final PrimitiveTypeInfo typeInfo = poi.getTypeInfo();
-
-        return PrimitiveObjectInspectorFactory
-                .getPrimitiveJavaObjectInspector(typeInfo)
-                .getPrimitiveWritableObject(value);
+    JsonParser createParser(final byte[] data, final int offset, final int length) throws IOException {
+        return this.objectMapper.getFactory().createParser(data, offset, length);
     }
 
     /**
-     * Visit a node if it is expected to be a Map (a.k.a. JSON Object)
+     * Reads the non-null value that starts at {@code data[start]} and ends
+     * before {@code end} for a lazy struct or array.
      *
-     * @param rootNode The node pointing at the JSON object
-     * @param oi The ObjectInspector to parse the Map (must be a
-     *          MapObjectInspector)
-     * @return A Java Map containing the contents of the JSON map
+     * @param lazyOI The lazy ObjectInspector of the value
+     * @param reader The reader of the value if it is not read lazily
+     * @return A lazy struct or array, or the value read by the reader
+     * @throws IOException Unable to parse the JSON text
      * @throws SerDeException The SerDe is not configured correctly
      */
-    private Map<Object, Object> visitMapNode(final JsonNode rootNode,
-                                             final ObjectInspector oi) throws SerDeException {
-        Preconditions.checkArgument(JsonNodeType.OBJECT == rootNode.getNodeType());
-
-        final Map<Object, Object> ret = new LinkedHashMap<>();
-
-        final ObjectInspector mapKeyInspector =
-                ((MapObjectInspector) oi).getMapKeyObjectInspector();
-
-        final ObjectInspector mapValueInspector =
-                ((MapObjectInspector) oi).getMapValueObjectInspector();
+    Object readLazy(final ObjectInspector lazyOI, final ValueReader reader,
+                    final byte[] data, final int start, final int end)
+            throws IOException, SerDeException {
+        if (lazyOI instanceof LazyJsonStructObjectInspector) {
+            return new LazyJsonStruct((LazyJsonStructObjectInspector) lazyOI, data, start, end);
+        }
+        if (lazyOI instanceof LazyJsonListObjectInspector) {
+            return new LazyJsonList((LazyJsonListObjectInspector) lazyOI, data, start, end);
+        }
+        try (JsonParser parser = createParser(data, start, valueLength(data, start, end))) {
+            parser.nextToken();
+            return reader.read(parser, null);
+        }
+    }
 
-        if (!(mapKeyInspector instanceof PrimitiveObjectInspector)) {
-            throw new SerDeException("Map key must be a primitive type");
+    /**
+     * A number at the root of a parser must be followed by white space or the
+     * end of the input, so its length is determined here. Any other value ends
+     * by itself and may be followed by the rest of the document.
+     */
+    private static int valueLength(final byte[] data, final int start, final int end) {
+        final byte first = data[start];
+        if (first != '-' && (first < '0' || first > '9')) {
+            return end - start;
         }
+        int pos = start + 1;
+        while (pos < end) {
+            final byte b = data[pos];
+            if ((b < '0' || b > '9') && b != '.' && b != 'e' && b != 'E' && b != '+' && b != '-') {
+                break;
+            }
+            pos++;
+        }
+        return pos - start;
+    }
 
-        final Iterator<Entry<String, JsonNode>> it = rootNode.fields();
-        while (it.hasNext()) {
-            final Entry<String, JsonNode> field = it.next();
-            final Object key =
-                    visitNode(new TextNode(field.getKey()), mapKeyInspector);
-            final Object val = visitNode(field.getValue(), mapValueInspector);
-            ret.put(key, val);
+    /**
+     * Builds the lazy ObjectInspector tree: structs and lists become lazy,
+     * everything else keeps its ObjectInspector and is read by a compiled
+     * value reader.
+     *
+     * @param oi The ObjectInspector to compile
+     * @return The lazy ObjectInspector or {@code oi} itself
+     */
+    private ObjectInspector compileLazy(final ObjectInspector oi) {
+        switch (oi.getCategory()) {
+            case LIST:
+                final ObjectInspector elementOI = ((ListObjectInspector) oi).getListElementObjectInspector();
+                final ObjectInspector lazyElementOI = compileLazy(elementOI);
+                return new LazyJsonListObjectInspector(this, lazyElementOI,
+                        lazyElementOI == elementOI ? compile(elementOI) : null);
+            case STRUCT:
+                final StructObjectInspector soi = (StructObjectInspector) oi;
+                final List<? extends StructField> fields = soi.getAllStructFieldRefs();
+                final List<String> names = new ArrayList<>(fields.size());
+                final List<ObjectInspector> fieldOIs = new ArrayList<>(fields.size());
+                final ValueReader[] fieldReaders = new ValueReader[fields.size()];
+                for (int i = 0; i < fieldReaders.length; i++) {
+                    final ObjectInspector fieldOI = fields.get(i).getFieldObjectInspector();
+                    final ObjectInspector lazyFieldOI = compileLazy(fieldOI);
+                    names.add(fields.get(i).getFieldName());
+                    fieldOIs.add(lazyFieldOI);
+                    fieldReaders[i] = lazyFieldOI == fieldOI ? compile(fieldOI) : null;
+                }
+                return new LazyJsonStructObjectInspector(this, new StructFieldResolver(soi),
+                        names, fieldOIs, fieldReaders);
+            default:
+                return oi;
         }
+    }
 
-        return ret;
+    /**
+     * Reads the first JSON value from the parser straight into the layout of the
+     * reader's ObjectInspector. No intermediate JSON tree is built.
+     *
+     * @param parser A parser positioned before the first token
+     * @return The parsed value or null if the input holds no value
+     * @throws IOException Unable to parse the JSON text
+     * @throws SerDeException The SerDe is not configured correctly
+     */
+    private Object parse(final JsonParser parser)
+            throws IOException, SerDeException {
+        getPlan();
+        return read(parser);
     }
 
     /**
-     * Visit a node if it is expected to be a Struct data type (a.k.a. JSON
-     * Object)
+     * Reads the root value with the compiled plan, applying
+     * {@link Feature#NULL_ON_ERROR} and {@link Feature#REUSE_OBJECTS}.
      *
-     * @param rootNode The node pointing at the JSON object
-     * @param oi The ObjectInspector to parse the Map (must be a
-     *          StructObjectInspector)
-     * @return A primitive array of Objects, each element is an element of the
-     *         struct
+     * @param parser A parser positioned before the first token, or null to
+     *          read the struct document in {@link #structuralIndex}
+     * @return The parsed value or null if the input holds no value
+     * @throws IOException Unable to parse the JSON text
      * @throws SerDeException The SerDe is not configured correctly
      */
-    private List<Object> visitStructNode(final JsonNode rootNode,
-                                         final ObjectInspector oi) throws SerDeException {
+    private Object read(final JsonParser parser)
+            throws IOException, SerDeException {
+        final Object result;
+        if (isEnabled(Feature.NULL_ON_ERROR)) {
+            try {
+                result = readRoot(parser);
+            } catch (JsonProcessingException | SerDeException | RuntimeException e) {
+                this.errorCount++;
+                return null;
+            }
+        } else {
+            result = readRoot(parser);
+        }
+        if (result != null && isEnabled(Feature.REUSE_OBJECTS)) {
+            this.lastResult = result;
+        }
+        return result;
+    }
 
-        Preconditions.checkArgument(JsonNodeType.OBJECT == rootNode.getNodeType());
+    private Object readRoot(final JsonParser parser)
+            throws IOException, SerDeException {
+        if (parser == null) {
+            return ((StructReader) this.plan).readIndexed(this.structuralIndex, 0, this.lastResult);
+        }
+        // the first token is read here so that a document which does not
+        // even start as JSON is covered by NULL_ON_ERROR
+        if (parser.nextToken() == null) {
+            return null;
+        }
+        return this.plan.readNullable(parser, this.lastResult);
+    }
 
-        final StructObjectInspector structInspector = (StructObjectInspector) oi;
+    private ValueReader getPlan() {
+        if (this.plan == null) {
+            this.plan = compile(this.oi);
+            this.lastResult = null;
+        }
+        return this.plan;
+    }
 
-        final int fieldCount = structInspector.getAllStructFieldRefs().size();
-        final List<Object> ret = Arrays.asList(new Object[fieldCount]);
+    /**
+     * @return the number of documents parsed as null because of
+     *         {@link Feature#NULL_ON_ERROR}
+     */
+    public long getErrorCount() {
+        return this.errorCount;
+    }
 
-        final Iterator<Entry<String, JsonNode>> it = rootNode.fields();
-        while (it.hasNext()) {
-            final Entry<String, JsonNode> field = it.next();
-            final String fieldName = field.getKey();
-            final JsonNode childNode = field.getValue();
-            final StructField structField =
-                    getStructField(structInspector, fieldName);
+    /**
+     * Preallocated error signal of {@link Feature#NULL_ON_ERROR}.
+     */
+    private static final class MismatchSignal extends SerDeException {
+        private static final long serialVersionUID = 1L;
 
-            // If the struct field is null it is because there is a field defined in
-            // the JSON object that was not defined in the table definition. Ignore.
-            if (structField != null) {
-                final Object childValue =
-                        visitNode(childNode, structField.getFieldObjectInspector());
-                ret.set(structField.getFieldID(), childValue);
-            }
+        MismatchSignal() {
+            super("JSON does not match table definition");
         }
 
-        return ret;
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
     }
 
     /**
-     * Visit a node if it is expected to be a JSON Array data type (a.k.a. Hive
-     * Array type)
+     * Compiles the ObjectInspector tree into a tree of value readers. The
+     * enabled features are applied here, once, rather than for every node.
      *
-     * @param rootNode The node pointing at the JSON object
-     * @param oi The ObjectInspector to parse the List (must be a
-     *          ListObjectInspector)
-     * @return A Java List of Objects, each element is an element of the array
-     * @throws SerDeException The SerDe is not configured correctly
+     * @param oi The ObjectInspector to compile
+     * @return The reader for values of the given type
      */
-    private List<Object> visitArrayNode(final JsonNode rootNode,
-                                        final ObjectInspector oi) throws SerDeException {
-        Preconditions.checkArgument(JsonNodeType.ARRAY == rootNode.getNodeType());
-
-        final ObjectInspector loi =
-                ((ListObjectInspector) oi).getListElementObjectInspector();
-
-        final List<Object> ret = new ArrayList<>(rootNode.size());
-        final Iterator<JsonNode> it = rootNode.elements();
-
-        while (it.hasNext()) {
-            final JsonNode element = it.next();
-            ret.add(visitNode(element, loi));
+    ValueReader compile(final ObjectInspector oi) {
+        final ValueReader reader = compileNode(oi);
+        if (isEnabled(Feature.NULL_ON_ERROR)) {
+            reader.mismatch = this.mismatch;
         }
+        return reader;
+    }
 
-        return ret;
+    private ValueReader compileNode(final ObjectInspector oi) {
+        final boolean reuse = isEnabled(Feature.REUSE_OBJECTS);
+        switch (oi.getCategory()) {
+            case PRIMITIVE:
+                return compileLeaf((PrimitiveObjectInspector) oi);
+            case LIST:
+                return new ListReader(
+                        compile(((ListObjectInspector) oi).getListElementObjectInspector()), reuse);
+            case STRUCT:
+                final StructObjectInspector soi = (StructObjectInspector) oi;
+                final List<? extends StructField> fields = soi.getAllStructFieldRefs();
+                final ValueReader[] fieldReaders = new ValueReader[fields.size()];
+                for (int i = 0; i < fieldReaders.length; i++) {
+                    fieldReaders[i] = compile(fields.get(i).getFieldObjectInspector());
+                }
+                return new StructReader(new StructFieldResolver(soi), fieldReaders, reuse);
+            case MAP:
+                final ObjectInspector mapKeyInspector =
+                        ((MapObjectInspector) oi).getMapKeyObjectInspector();
+                final ObjectInspector mapValueInspector =
+                        ((MapObjectInspector) oi).getMapValueObjectInspector();
+                if (!(mapKeyInspector instanceof PrimitiveObjectInspector)) {
+                    return new FailingReader("Map key must be a primitive type");
+                }
+                return new MapReader(compile(mapKeyInspector), compile(mapValueInspector), reuse);
+            default:
+                return new FailingReader(
+                        "Parsing of: " + oi.getCategory() + " is not supported");
+        }
     }
 
     /**
-     * Visit a node if it is expected to be a primitive value (JSON leaf node).
+     * Compiles a reader for a primitive value (JSON leaf node). Values are
+     * coerced the same way Jackson's {@code JsonNode.asXxx()} methods coerce
+     * them, so numbers may be read from strings and vice versa.
+     * <p>
+     * The typical usage of this SerDe requires that it return Hadoop Writable
+     * objects. However, some uses of this SerDe want the return values to be Java
+     * primitive objects. With {@link Feature#PRIMITIVE_TO_WRITABLE} the common
+     * types are read straight into Writables; the others are converted to Java
+     * objects and wrapped by the matching Java ObjectInspector. Only the former
+     * fill in a previous Writable with {@link Feature#REUSE_OBJECTS}.
      *
-     * @param leafNode The node pointing at the JSON object
-     * @param oi The ObjectInspector to parse the value (must be a
-     *          PrimitiveObjectInspector)
-     * @return A Java primitive Object
-     * @throws SerDeException The SerDe is not configured correctly
+     * @param poi The ObjectInspector of the value
+     * @return The reader for values of the given type
      */
-    private Object visitLeafNode(final JsonNode leafNode,
-                                 final ObjectInspector oi) throws SerDeException {
-        final PrimitiveObjectInspector poi = (PrimitiveObjectInspector) oi;
+    private ValueReader compileLeaf(final PrimitiveObjectInspector poi) {
         final PrimitiveTypeInfo typeInfo = poi.getTypeInfo();
-
-        if (typeInfo.getPrimitiveCategory() != PrimitiveCategory.STRING) {
-            Preconditions.checkArgument(leafNode.getNodeType() != JsonNodeType.OBJECT);
-            Preconditions.checkArgument(leafNode.getNodeType() != JsonNodeType.ARRAY);
-        }
+        final boolean writable = isEnabled(Feature.PRIMITIVE_TO_WRITABLE);
+        final PrimitiveObjectInspector wrapper = writable
+                ? PrimitiveObjectInspectorFactory.getPrimitiveJavaObjectInspector(typeInfo)
+                : null;
 
         switch (typeInfo.getPrimitiveCategory()) {
             case INT:
-                return Integer.valueOf(leafNode.asInt());
+                return new IntReader(writable);
             case BYTE:
-                return Byte.valueOf((byte) leafNode.asInt());
+                return new ByteReader(writable);
             case SHORT:
-                return Short.valueOf((short) leafNode.asInt());
+                return new ShortReader(writable);
             case LONG:
-                return Long.valueOf(leafNode.asLong());
+                return new LongReader(writable);
             case BOOLEAN:
-                return Boolean.valueOf(leafNode.asBoolean());
+                return new BooleanReader(writable);
             case FLOAT:
-                return Float.valueOf((float) leafNode.asDouble());
+                return new FloatReader(writable);
             case DOUBLE:
-                return Double.valueOf(leafNode.asDouble());
+                return new DoubleReader(writable);
             case STRING:
-                if (leafNode.isValueNode()) {
-                    return leafNode.asText();
-                } else {
-                    if (isEnabled(Feature.STRINGIFY_COMPLEX_FIELDS)) {
-                        return leafNode.toString();
-                    } else {
-                        throw new SerDeException(
-                                "Complex field found in JSON does not match table definition: " + typeInfo.getTypeName());
-                    }
-                }
+                return new StringReader(writable, isEnabled(Feature.STRINGIFY_COMPLEX_FIELDS), typeInfo);
             case BINARY:
-                return getByteValue(leafNode);
+                return new BinaryReader(writable, this.binaryEncoding);
             case DATE:
-                return Date.valueOf(leafNode.asText());
+                return new DateReader(writable);
             case TIMESTAMP:
-                return tsParser.parseTimestamp(leafNode.asText());
+                return new TimestampReader(writable, this.tsParser, this.fastTimestamps);
             case DECIMAL:
-                return HiveDecimal.create(leafNode.asText());
+                return new TextLeafReader(wrapper) {
+                    @Override
+                    Object convert(final String text) {
+                        return HiveDecimal.create(text);
+                    }
+                };
             case TIMESTAMPLOCALTZ:
-                final Timestamp ts = tsParser.parseTimestamp(leafNode.asText());
-                final ZoneId zid = ((TimestampLocalTZTypeInfo) typeInfo).timeZone();
-                final TimestampTZ tstz = new TimestampTZ();
-                tstz.set(ts.toEpochSecond(), ts.getNanos(), zid);
-                return tstz;
+                return new TimestampLocalTZReader(((TimestampLocalTZTypeInfo) typeInfo).timeZone(),
+                        wrapper, this.tsParser, this.fastTimestamps);
             case VARCHAR:
-                return new HiveVarchar(leafNode.asText(),
-                        ((BaseCharTypeInfo) typeInfo).getLength());
+                final int varcharLength = ((BaseCharTypeInfo) typeInfo).getLength();
+                return new TextLeafReader(wrapper) {
+                    @Override
+                    Object convert(final String text) {
+                        return new HiveVarchar(text, varcharLength);
+                    }
+                };
             case CHAR:
-                return new HiveChar(leafNode.asText(),
-                        ((BaseCharTypeInfo) typeInfo).getLength());
+                final int charLength = ((BaseCharTypeInfo) typeInfo).getLength();
+                return new TextLeafReader(wrapper) {
+                    @Override
+                    Object convert(final String text) {
+                        return new HiveChar(text, charLength);
+                    }
+                };
             default:
-                throw new SerDeException(
+                return new FailingReader(
                         "Could not convert from string to type: " + typeInfo.getTypeName());
         }
     }
 
+    /**
+     * Reads one JSON value into the Hive representation of its type.
+     */
+    abstract static class ValueReader {
+
+        /**
+         * Reads the value at the parser's current token, which is not a JSON
+         * null. On return the parser is positioned on the last token of the
+         * value.
+         *
+         * @param parser The parser positioned on the first token of the value
+         * @param reuse An object this reader returned before that may be filled
+         *          in and returned again, or null
+         * @return The value. Return value may be primitive, and may be a complex
+         *         type if nested.
+         * @throws IOException Unable to parse the JSON text
+         * @throws SerDeException The SerDe is not configured correctly
+         */
+        abstract Object read(JsonParser parser, Object reuse) throws IOException, SerDeException;
+
+        final Object readNullable(final JsonParser parser, final Object reuse)
+                throws IOException, SerDeException {
+            return parser.currentToken() == JsonToken.VALUE_NULL ? null : read(parser, reuse);
+        }
+
+        /**
+         * With {@link Feature#NULL_ON_ERROR}, the signal thrown when the JSON
+         * does not match the type; otherwise null.
+         */
+        SerDeException mismatch;
+
+        /**
+         * Same as {@code Preconditions.checkArgument}, unless a mismatch
+         * signal is set.
+         */
+        final void check(final boolean expression) throws SerDeException {
+            if (!expression) {
+                if (mismatch != null) {
+                    throw mismatch;
+                }
+                throw new IllegalArgumentException();
+            }
+        }
+
+        final void checkScalar(final JsonParser parser) throws SerDeException {
+            check(!parser.currentToken().isStructStart());
+        }
+    }
+
+    /**
+     * List returned for structs and arrays with {@link Feature#REUSE_OBJECTS}.
+     * Besides the visible elements it remembers the last non-null value of
+     * every position, so that a position that is null or absent in one record
+     * can still fill in its old value in a later record.
+     */
+    private static final class ReusableList extends AbstractList<Object> implements RandomAccess {
+        private Object[] values;
+        private Object[] spares;
+        private int size;
+
+        ReusableList(final int capacity) {
+            this.values = new Object[Math.max(capacity, 4)];
+            this.spares = new Object[this.values.length];
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Empties the list and then makes it hold {@code size} nulls.
+         */
+        void reset(final int size) {
+            Arrays.fill(values, 0, this.size, null);
+            if (size > values.length) {
+                grow(size);
+            }
+            this.size = size;
+        }
+
+        Object spare(final int index) {
+            return index < spares.length ? spares[index] : null;
+        }
+
+        void put(final int index, final Object value) {
+            values[index] = value;
+            if (value != null) {
+                spares[index] = value;
+            }
+        }
+
+        void append(final Object value) {
+            if (size == values.length) {
+                grow(size * 2);
+            }
+            put(size++, value);
+        }
+
+        private void grow(final int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            spares = Arrays.copyOf(spares, capacity);
+        }
+    }
+
+    /**
+     * Reads a JSON object into a struct: a List with one element per field.
+     */
+    private final class StructReader extends ValueReader {
+        private final StructFieldResolver resolver;
+        private final ValueReader[] fieldReaders;
+        private final boolean reuseObjects;
+
+        StructReader(final StructFieldResolver resolver, final ValueReader[] fieldReaders,
+                     final boolean reuseObjects) {
+            this.resolver = resolver;
+            this.fieldReaders = fieldReaders;
+            this.reuseObjects = reuseObjects;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            check(JsonToken.START_OBJECT == parser.currentToken());
+
+            if (reuseObjects) {
+                return readInto(parser, reuse == null
+                        ? new ReusableList(fieldReaders.length) : (ReusableList) reuse);
+            }
+
+            final List<Object> ret = Arrays.asList(new Object[fieldReaders.length]);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final int fieldIndex = getStructField(resolver, parser.getCurrentName());
+                parser.nextToken();
+
+                // If the field index is negative it is because there is a field defined in
+                // the JSON object that was not defined in the table definition. Ignore.
+                if (fieldIndex >= 0) {
+                    ret.set(fieldIndex, fieldReaders[fieldIndex].readNullable(parser, null));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return ret;
+        }
+
+        private ReusableList readInto(final JsonParser parser, final ReusableList ret)
+                throws IOException, SerDeException {
+            ret.reset(fieldReaders.length);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final int fieldIndex = getStructField(resolver, parser.getCurrentName());
+                parser.nextToken();
+
+                if (fieldIndex >= 0) {
+                    ret.put(fieldIndex, fieldReaders[fieldIndex].readNullable(parser, ret.spare(fieldIndex)));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return ret;
+        }
+
+        /**
+         * Reads the object that starts with the structural character
+         * {@code open} of the index. Field names are read from the bytes
+         * between the structural characters; only the values of known fields
+         * are parsed.
+         */
+        Object readIndexed(final JsonStructuralIndex index, final int open, final Object reuse)
+                throws IOException, SerDeException {
+            final byte[] data = index.getData();
+            final int close = index.match(open);
+            final ReusableList reusable;
+            final List<Object> ret;
+            if (reuseObjects) {
+                reusable = reuse == null ? new ReusableList(fieldReaders.length) : (ReusableList) reuse;
+                reusable.reset(fieldReaders.length);
+                ret = reusable;
+            } else {
+                reusable = null;
+                ret = Arrays.asList(new Object[fieldReaders.length]);
+            }
+
+            int keyStart = index.position(open) + 1;
+            int colon = open + 1;
+            if (colon == close && skipWhitespace(data, keyStart, index.position(close)) == index.position(close)) {
+                return ret;
+            }
+            while (true) {
+                if (colon >= close || data[index.position(colon)] != ':') {
+                    throw syntaxError("Expected a field name and a colon", index.position(Math.min(colon, close)));
+                }
+                final int valueStart = skipWhitespace(data, index.position(colon) + 1, data.length);
+                final boolean nested = data[valueStart] == '{' || data[valueStart] == '[';
+                final int after = nested ? index.match(colon + 1) + 1 : colon + 1;
+                if (after > close || (after < close && data[index.position(after)] != ',')) {
+                    throw syntaxError("Expected a comma or the end of the object", index.position(after));
+                }
+
+                final int fieldIndex = getStructField(resolver, readKey(data, keyStart, index.position(colon)));
+                if (fieldIndex >= 0) {
+                    final ValueReader reader = fieldReaders[fieldIndex];
+                    final Object spare = reusable == null ? null : reusable.spare(fieldIndex);
+                    final Object value;
+                    if (data[valueStart] == '{' && reader instanceof StructReader) {
+                        value = ((StructReader) reader).readIndexed(index, colon + 1, spare);
+                    } else {
+                        value = readSlice(reader, data, valueStart, index.position(after), spare);
+                    }
+                    if (reusable != null) {
+                        reusable.put(fieldIndex, value);
+                    } else {
+                        ret.set(fieldIndex, value);
+                    }
+                }
+
+                if (after == close) {
+                    return ret;
+                }
+                keyStart = index.position(after) + 1;
+                colon = after + 1;
+            }
+        }
+
+        private String readKey(final byte[] data, final int start, final int end) throws IOException {
+            final int first = skipWhitespace(data, start, end);
+            int last = end;
+            while (last > first && JsonStructuralIndex.isWhitespace(data[last - 1])) {
+                last--;
+            }
+            if (last - first < 2 || data[first] != '"' || data[last - 1] != '"') {
+                throw syntaxError("Expected a field name", first);
+            }
+            for (int i = first + 1; i < last - 1; i++) {
+                if (data[i] == '\\') {
+                    try (JsonParser parser = createParser(data, first, last - first)) {
+                        parser.nextToken();
+                        return parser.getText();
+                    }
+                }
+            }
+            return new String(data, first + 1, last - first - 2, StandardCharsets.UTF_8);
+        }
+
+        private Object readSlice(final ValueReader reader, final byte[] data, final int start, final int end,
+                                 final Object reuse) throws IOException, SerDeException {
+            if (start >= end) {
+                throw syntaxError("Expected a value", start);
+            }
+            try (JsonParser parser = createParser(data, start, valueLength(data, start, end))) {
+                parser.nextToken();
+                return reader.readNullable(parser, reuse);
+            }
+        }
+    }
+
+    private static int skipWhitespace(final byte[] data, int pos, final int end) {
+        while (pos < end && JsonStructuralIndex.isWhitespace(data[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static JsonParseException syntaxError(final String message, final int position) {
+        return new JsonParseException((JsonParser) null, message + " at byte " + position);
+    }
+
+    /**
+     * Reads a JSON array into a List.
+     */
+    private static final class ListReader extends ValueReader {
+        private final ValueReader elementReader;
+        private final boolean reuseObjects;
+
+        ListReader(final ValueReader elementReader, final boolean reuseObjects) {
+            this.elementReader = elementReader;
+            this.reuseObjects = reuseObjects;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            check(JsonToken.START_ARRAY == parser.currentToken());
+
+            if (reuseObjects) {
+                final ReusableList ret = reuse == null ? new ReusableList(0) : (ReusableList) reuse;
+                ret.reset(0);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    ret.append(elementReader.readNullable(parser, ret.spare(ret.size())));
+                }
+                return ret;
+            }
+
+            final List<Object> ret = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                ret.add(elementReader.readNullable(parser, null));
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Reads a JSON object into a Map. The field name token is read by the key
+     * reader like a JSON string. Keys vary between records, so only the map
+     * itself is reused.
+     */
+    private static final class MapReader extends ValueReader {
+        private final ValueReader keyReader;
+        private final ValueReader valueReader;
+        private final boolean reuseObjects;
+
+        MapReader(final ValueReader keyReader, final ValueReader valueReader,
+                  final boolean reuseObjects) {
+            this.keyReader = keyReader;
+            this.valueReader = valueReader;
+            this.reuseObjects = reuseObjects;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            check(JsonToken.START_OBJECT == parser.currentToken());
+
+            final Map<Object, Object> ret;
+            if (reuseObjects && reuse != null) {
+                ret = (Map<Object, Object>) reuse;
+                ret.clear();
+            } else {
+                ret = new LinkedHashMap<>();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final Object key = keyReader.read(parser, null);
+                parser.nextToken();
+                ret.put(key, valueReader.readNullable(parser, null));
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Fails on any non-null value, for types this reader cannot produce.
+     */
+    private static final class FailingReader extends ValueReader {
+        private final String message;
+
+        FailingReader(final String message) {
+            this.message = message;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws SerDeException {
+            throw new SerDeException(message);
+        }
+    }
+
+    private static final class IntReader extends ValueReader {
+        private final boolean writable;
+
+        IntReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final int value = (int) asLong(parser);
+            if (!writable) {
+                return Integer.valueOf(value);
+            }
+            final IntWritable ret = reuse == null ? new IntWritable() : (IntWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class ByteReader extends ValueReader {
+        private final boolean writable;
+
+        ByteReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final byte value = (byte) asLong(parser);
+            if (!writable) {
+                return Byte.valueOf(value);
+            }
+            final ByteWritable ret = reuse == null ? new ByteWritable() : (ByteWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class ShortReader extends ValueReader {
+        private final boolean writable;
+
+        ShortReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final short value = (short) asLong(parser);
+            if (!writable) {
+                return Short.valueOf(value);
+            }
+            final ShortWritable ret = reuse == null ? new ShortWritable() : (ShortWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class LongReader extends ValueReader {
+        private final boolean writable;
+
+        LongReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final long value = asLong(parser);
+            if (!writable) {
+                return Long.valueOf(value);
+            }
+            final LongWritable ret = reuse == null ? new LongWritable() : (LongWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class BooleanReader extends ValueReader {
+        private final boolean writable;
+
+        BooleanReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final boolean value = asBoolean(parser);
+            if (!writable) {
+                return Boolean.valueOf(value);
+            }
+            final BooleanWritable ret = reuse == null ? new BooleanWritable() : (BooleanWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class FloatReader extends ValueReader {
+        private final boolean writable;
+
+        FloatReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final float value = (float) asDouble(parser);
+            if (!writable) {
+                return Float.valueOf(value);
+            }
+            final FloatWritable ret = reuse == null ? new FloatWritable() : (FloatWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class DoubleReader extends ValueReader {
+        private final boolean writable;
+
+        DoubleReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final double value = asDouble(parser);
+            if (!writable) {
+                return Double.valueOf(value);
+            }
+            final DoubleWritable ret = reuse == null ? new DoubleWritable() : (DoubleWritable) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class StringReader extends ValueReader {
+        private final boolean writable;
+        private final boolean stringifyComplexFields;
+        private final PrimitiveTypeInfo typeInfo;
+        private byte[] utf8 = new byte[64];
+
+        StringReader(final boolean writable, final boolean stringifyComplexFields,
+                     final PrimitiveTypeInfo typeInfo) {
+            this.writable = writable;
+            this.stringifyComplexFields = stringifyComplexFields;
+            this.typeInfo = typeInfo;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            if (writable && reuse != null && parser.currentToken() == JsonToken.VALUE_STRING) {
+                // Encode the token characters straight into the Text, no String
+                final Text ret = (Text) reuse;
+                final int length = parser.getTextLength();
+                if (utf8.length < length * 3) {
+                    utf8 = new byte[length * 3];
+                }
+                final int n = encodeUtf8(parser.getTextCharacters(), parser.getTextOffset(), length, utf8);
+                ret.set(utf8, 0, n);
+                return ret;
+            }
+
+            final String value;
+            if (!parser.currentToken().isStructStart()) {
+                value = asText(parser);
+            } else if (stringifyComplexFields) {
+                // Rare path: only the complex subtree is materialized
+                value = parser.readValueAsTree().toString();
+            } else if (mismatch != null) {
+                throw mismatch;
+            } else {
+                throw new SerDeException(
+                        "Complex field found in JSON does not match table definition: " + typeInfo.getTypeName());
+            }
+            if (!writable) {
+                return value;
+            }
+            if (reuse == null) {
+                return new Text(value);
+            }
+            final Text ret = (Text) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class BinaryReader extends ValueReader {
+        private final boolean writable;
+        private final BinaryEncoding binaryEncoding;
+
+        BinaryReader(final boolean writable, final BinaryEncoding binaryEncoding) {
+            this.writable = writable;
+            this.binaryEncoding = binaryEncoding;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws SerDeException {
+            checkScalar(parser);
+            final byte[] value = getByteValue(parser, binaryEncoding);
+            if (!writable || value == null) {
+                return value;
+            }
+            if (reuse == null) {
+                return new BytesWritable(value);
+            }
+            final BytesWritable ret = (BytesWritable) reuse;
+            ret.set(value, 0, value.length);
+            return ret;
+        }
+    }
+
+    private static final class DateReader extends ValueReader {
+        private final boolean writable;
+        private final FastDateTimeParser dateTimes = new FastDateTimeParser();
+
+        DateReader(final boolean writable) {
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            if (parser.currentToken() == JsonToken.VALUE_STRING
+                    && dateTimes.parseDate(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+                final int epochDay = dateTimes.getEpochDay();
+                if (!writable) {
+                    return Date.ofEpochDay(epochDay);
+                }
+                final DateWritableV2 ret = reuse == null ? new DateWritableV2() : (DateWritableV2) reuse;
+                ret.set(epochDay);
+                return ret;
+            }
+
+            final Date value = Date.valueOf(asText(parser));
+            if (!writable) {
+                return value;
+            }
+            final DateWritableV2 ret = reuse == null ? new DateWritableV2() : (DateWritableV2) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    /**
+     * Reads a timestamp from a fixed layout string or epoch milliseconds
+     * through {@link FastDateTimeParser}, and from anything else through the
+     * reader's {@link TimestampParser}. The fast path is only taken with the
+     * default timestamp parser, whose behavior it reproduces; custom formats
+     * always go through the TimestampParser.
+     */
+    private abstract static class TimestampLeafReader extends ValueReader {
+        private final TimestampParser tsParser;
+        private final FastDateTimeParser dateTimes;
+
+        TimestampLeafReader(final TimestampParser tsParser, final boolean fastPath) {
+            this.tsParser = tsParser;
+            this.dateTimes = fastPath ? new FastDateTimeParser() : null;
+        }
+
+        final Timestamp readTimestamp(final JsonParser parser) throws IOException, SerDeException {
+            checkScalar(parser);
+            if (dateTimes != null) {
+                final JsonToken token = parser.currentToken();
+                if (token == JsonToken.VALUE_STRING) {
+                    if (dateTimes.parseTimestamp(parser.getTextCharacters(), parser.getTextOffset(),
+                            parser.getTextLength())) {
+                        return Timestamp.ofEpochSecond(dateTimes.getEpochSecond(), dateTimes.getNanos());
+                    }
+                } else if (token == JsonToken.VALUE_NUMBER_INT
+                        && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    return Timestamp.ofEpochMilli(parser.getLongValue());
+                }
+            }
+            return tsParser.parseTimestamp(asText(parser));
+        }
+    }
+
+    private static final class TimestampReader extends TimestampLeafReader {
+        private final boolean writable;
+
+        TimestampReader(final boolean writable, final TimestampParser tsParser, final boolean fastPath) {
+            super(tsParser, fastPath);
+            this.writable = writable;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            final Timestamp value = readTimestamp(parser);
+            if (!writable) {
+                return value;
+            }
+            if (reuse == null) {
+                return new TimestampWritableV2(value);
+            }
+            final TimestampWritableV2 ret = (TimestampWritableV2) reuse;
+            ret.set(value);
+            return ret;
+        }
+    }
+
+    private static final class TimestampLocalTZReader extends TimestampLeafReader {
+        private final ZoneId zone;
+        private final PrimitiveObjectInspector wrapper;
+
+        TimestampLocalTZReader(final ZoneId zone, final PrimitiveObjectInspector wrapper,
+                               final TimestampParser tsParser, final boolean fastPath) {
+            super(tsParser, fastPath);
+            this.zone = zone;
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            final Timestamp ts = readTimestamp(parser);
+            final TimestampTZ tstz = new TimestampTZ();
+            tstz.set(ts.toEpochSecond(), ts.getNanos(), zone);
+            return wrapper == null ? tstz : wrapper.getPrimitiveWritableObject(tstz);
+        }
+    }
+
+    /**
+     * Reads the text of a leaf value and converts it to a Java object,
+     * optionally wrapped into a Writable by the given Java ObjectInspector.
+     */
+    private abstract static class TextLeafReader extends ValueReader {
+        private final PrimitiveObjectInspector wrapper;
+
+        TextLeafReader(final PrimitiveObjectInspector wrapper) {
+            this.wrapper = wrapper;
+        }
+
+        abstract Object convert(String text);
+
+        @Override
+        final Object read(final JsonParser parser, final Object reuse) throws IOException, SerDeException {
+            checkScalar(parser);
+            final Object value = convert(asText(parser));
+            return wrapper == null ? value : wrapper.getPrimitiveWritableObject(value);
+        }
+    }
+
+    /**
+     * Encodes UTF-16 characters as UTF-8 the way {@code Text.set(String)} does,
+     * including the {@code '?'} replacement of unpaired surrogates.
+     *
+     * @param chars The characters to encode
+     * @param offset The offset of the first character
+     * @param length The number of characters
+     * @param out The output buffer, at least three bytes per character
+     * @return The number of bytes written
+     */
+    static int encodeUtf8(final char[] chars, final int offset, final int length, final byte[] out) {
+        int n = 0;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final char c = chars[i];
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xc0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                out[n++] = (byte) (0xe0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[n++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                final int cp = Character.toCodePoint(c, chars[++i]);
+                out[n++] = (byte) (0xf0 | (cp >> 18));
+                out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                out[n++] = (byte) (0x80 | (cp & 0x3f));
+            } else {
+                out[n++] = (byte) '?';
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reads the current scalar token as a long, like {@code JsonNode.asLong()}.
+     */
+    static long asLong(final JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    return parser.getBigIntegerValue().longValue();
+                }
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return (long) parser.getDoubleValue();
+            case VALUE_STRING:
+            case FIELD_NAME:
+                return NumberInput.parseAsLong(parser.getText(), 0L);
+            case VALUE_TRUE:
+                return 1L;
+            default:
+                return 0L;
+        }
+    }
+
+    /**
+     * Reads the current scalar token as a double, like {@code JsonNode.asDouble()}.
+     */
+    static double asDouble(final JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+            case FIELD_NAME:
+                return NumberInput.parseAsDouble(parser.getText(), 0.0);
+            case VALUE_TRUE:
+                return 1.0;
+            default:
+                return 0.0;
+        }
+    }
+
+    /**
+     * Reads the current scalar token as a boolean, like {@code JsonNode.asBoolean()}.
+     */
+    static boolean asBoolean(final JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_TRUE:
+                return true;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    return parser.getBigIntegerValue().signum() != 0;
+                }
+                return parser.getLongValue() != 0L;
+            case VALUE_STRING:
+            case FIELD_NAME:
+                return "true".equals(parser.getText().trim());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads the current scalar token as text, like {@code JsonNode.asText()}.
+     * Numbers are rendered in their canonical form rather than as written.
+     */
+    static String asText(final JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return Integer.toString(parser.getIntValue());
+                    case LONG:
+                        return Long.toString(parser.getLongValue());
+                    default:
+                        return parser.getBigIntegerValue().toString();
+                }
+            case VALUE_NUMBER_FLOAT:
+                return Double.toString(parser.getDoubleValue());
+            default:
+                return parser.getText();
+        }
+    }
+
     /**
      * A user may configure the encoding for binary data represented as text
      * within a JSON object. This method applies that encoding to the text.
      *
-     * @param binaryNode JSON Node containing the binary data
+     * @param parser The parser positioned on the JSON value with the binary data
+     * @param binaryEncoding The encoding of the binary data
      * @return A byte array with the binary data
      * @throws SerDeException The SerDe is not configured correctly
      */
-    private byte[] getByteValue(final JsonNode binaryNode) throws SerDeException {
+    static byte[] getByteValue(final JsonParser parser,
+                                       final BinaryEncoding binaryEncoding) throws SerDeException {
         try {
-            switch (this.binaryEncoding) {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                return null;
+            }
+            switch (binaryEncoding) {
                 case RAWSTRING:
-                    final String byteText = binaryNode.textValue();
+                    final String byteText = parser.getText();
                     return byteText.getBytes(StandardCharsets.UTF_8);
                 case BASE64:
-                    return binaryNode.binaryValue();
+                    return parser.getBinaryValue();
                 default:
                     throw new SerDeException(
-                            "No such binary encoding: " + this.binaryEncoding);
+                            "No such binary encoding: " + binaryEncoding);
             }
         } catch (IOException e) {
             throw new SerDeException("Error generating JSON binary type from record.",
@@ -468,29 +1533,24 @@ public class HiveJsonReader {
     /**
      * Matches the JSON object's field name with the Hive data type.
      *
-     * @param oi The ObjectInspector to lookup the matching in
+     * @param resolver The field lookup table of the struct type
      * @param fieldName The name of the field parsed from the JSON text
-     * @return The meta data of regarding this field
+     * @return The index of the field in the struct or a negative value if the
+     *         field is unknown and should be ignored
      * @throws SerDeException The SerDe is not configured correctly
      */
-    private StructField getStructField(final StructObjectInspector oi,
-                                       final String fieldName) throws SerDeException {
-
-        final Pair<StructObjectInspector, String> pair =
-                ImmutablePair.of(oi, fieldName);
+    int getStructField(final StructFieldResolver resolver,
+                       final String fieldName) throws SerDeException {
 
-        // Ignore the field if it has been ignored before
-        if (this.discoveredUnknownFields.contains(pair)) {
-            return null;
-        }
-
-        // Return from cache if the field has already been discovered
-        StructField structField = this.discoveredFields.get(pair);
-        if (structField != null) {
-            return structField;
+        // Declared fields and previously discovered names
+        final int index = resolver.lookup(fieldName);
+        if (index != StructFieldResolver.NOT_FOUND) {
+            return index;
         }
 
         // Otherwise attempt to discover the field
+        final StructObjectInspector oi = resolver.getObjectInspector();
+        StructField structField = null;
         if (isEnabled(Feature.COL_INDEX_PARSING)) {
             int colIndex = getColIndex(fieldName);
             if (colIndex >= 0) {
@@ -506,23 +1566,27 @@ public class HiveJsonReader {
         }
         if (structField != null) {
             // cache it for next time
-            this.discoveredFields.put(pair, structField);
-        } else {
-            // Tried everything and did not discover this field
-            if (isEnabled(Feature.IGNORE_UNKNOWN_FIELDS)
-                    && this.discoveredUnknownFields.add(pair)) {
-                LOG.warn("Discovered unknown field: {}. Ignoring.", fieldName);
-            } else {
-                throw new SerDeException(
-                        "Field found in JSON does not match table definition: "
-                                + fieldName);
-            }
+            final int fieldIndex = resolver.getFields().indexOf(structField);
+            resolver.remember(fieldName, fieldIndex);
+            return fieldIndex;
         }
 
-        return structField;
+        // Tried everything and did not discover this field
+        if (!isEnabled(Feature.IGNORE_UNKNOWN_FIELDS)) {
+            if (isEnabled(Feature.NULL_ON_ERROR)) {
+                throw this.mismatch;
+            }
+            throw new SerDeException(
+                    "Field found in JSON does not match table definition: "
+                            + fieldName);
+        }
+        if (resolver.remember(fieldName, StructFieldResolver.UNKNOWN)) {
+            LOG.warn("Discovered unknown field: {}. Ignoring.", fieldName);
+        }
+        return StructFieldResolver.UNKNOWN;
     }
 
-    private final Pattern internalPattern = Pattern.compile("^_col([0-9]+)$");
+    private static final String COL_INDEX_PREFIX = "_col";
 
     /**
      * Look up a column based on its index.
@@ -532,19 +1596,33 @@ public class HiveJsonReader {
      *         index number too
      */
     private int getColIndex(final String internalName) {
-        // The above line should have been all the implementation that
-        // we need, but due to a bug in that impl which recognizes
-        // only single-digit columns, we need another impl here.
-        final Matcher m = internalPattern.matcher(internalName);
-        return m.matches() ? Integer.parseInt(m.group(1)) : -1;
+        // Same as matching ^_col([0-9]+)$, without a regular expression
+        final int length = internalName.length();
+        if (length == COL_INDEX_PREFIX.length() || length > COL_INDEX_PREFIX.length() + 9
+                || !internalName.startsWith(COL_INDEX_PREFIX)) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = COL_INDEX_PREFIX.length(); i < length; i++) {
+            final char c = internalName.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
     }
 
     public void enable(Feature feature) {
         this.features.add(feature);
+        this.plan = null;
+        this.lazyOI = null;
     }
 
     public void disable(Feature feature) {
         this.features.remove(feature);
+        this.plan = null;
+        this.lazyOI = null;
     }
 
     public Set<Feature> getFeatures() {
@@ -565,6 +1643,8 @@ public class HiveJsonReader {
 
     public void setBinaryEncoding(BinaryEncoding encoding) {
         this.binaryEncoding = encoding;
+        this.plan = null;
+        this.lazyOI = null;
     }
 
     @Override
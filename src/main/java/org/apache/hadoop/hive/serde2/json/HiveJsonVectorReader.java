@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.common.type.HiveChar;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.common.type.Timestamp;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MultiValuedColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader.Feature;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Preconditions;
+
+/**
+ * Parses JSON documents straight into the column vectors of a vectorized row
+ * batch, laid out the way Hive lays out the reader's type: structs, arrays and
+ * maps into {@link StructColumnVector}, {@link ListColumnVector} and
+ * {@link MapColumnVector}, and primitives into the vector of their type.
+ * <p>
+ * Values are coerced and fields are resolved exactly like {@link HiveJsonReader}
+ * does, using its features; {@link Feature#PRIMITIVE_TO_WRITABLE},
+ * {@link Feature#REUSE_OBJECTS} and {@link Feature#STRINGIFY_COMPLEX_FIELDS}
+ * aside, which do not apply or are always honored. Integers, floating point
+ * numbers, strings and dates are decoded into the vectors without creating
+ * objects; the other primitive types are read through the row reader and
+ * copied.
+ */
+public class HiveJsonVectorReader {
+
+    private final HiveJsonReader reader;
+    private final VectorReader plan;
+    private long errorCount;
+
+    /**
+     * @param reader The reader whose type and features to use; it must not
+     *          have {@link Feature#PRIMITIVE_TO_WRITABLE} enabled
+     */
+    public HiveJsonVectorReader(HiveJsonReader reader) {
+        Preconditions.checkArgument(!reader.isEnabled(Feature.PRIMITIVE_TO_WRITABLE));
+        this.reader = reader;
+        this.plan = compile(reader.getObjectInspector());
+    }
+
+    /**
+     * Parses one UTF-8 encoded JSON document into a row of the vector. An empty
+     * document or a JSON null sets the row to null.
+     * <p>
+     * With {@link Feature#NULL_ON_ERROR}, a document that cannot be read sets
+     * the row to null and is counted in {@link #getErrorCount()}.
+     *
+     * @param data The buffer holding the JSON text
+     * @param offset The offset of the JSON text in the buffer
+     * @param length The length of the JSON text in bytes
+     * @param out The vector of the reader's type
+     * @param row The row to set
+     * @throws IOException Unable to parse the JSON text
+     * @throws SerDeException The SerDe is not configured correctly
+     */
+    public void parseInto(final byte[] data, final int offset, final int length,
+                          final ColumnVector out, final int row) throws IOException, SerDeException {
+        try (JsonParser parser = reader.createParser(data, offset, length)) {
+            if (!reader.isEnabled(Feature.NULL_ON_ERROR)) {
+                readRoot(parser, out, row);
+            } else {
+                try {
+                    readRoot(parser, out, row);
+                } catch (JsonProcessingException | SerDeException | RuntimeException e) {
+                    errorCount++;
+                    setNull(out, row);
+                }
+            }
+        }
+    }
+
+    private void readRoot(final JsonParser parser, final ColumnVector out, final int row)
+            throws IOException, SerDeException {
+        if (parser.nextToken() == null) {
+            setNull(out, row);
+        } else {
+            plan.readNullable(parser, out, row);
+        }
+    }
+
+    /**
+     * @return the number of documents set to null because of
+     *         {@link Feature#NULL_ON_ERROR}
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    static void setNull(final ColumnVector out, final int row) {
+        out.isNull[row] = true;
+        out.noNulls = false;
+    }
+
+    private VectorReader compile(final ObjectInspector oi) {
+        final VectorReader ret = compileNode(oi);
+        if (reader.isEnabled(Feature.NULL_ON_ERROR)) {
+            ret.mismatch = reader.mismatch;
+        }
+        return ret;
+    }
+
+    private VectorReader compileNode(final ObjectInspector oi) {
+        switch (oi.getCategory()) {
+            case PRIMITIVE:
+                return compileLeaf((PrimitiveObjectInspector) oi);
+            case LIST:
+                return new ListVectorReader(compile(((ListObjectInspector) oi).getListElementObjectInspector()));
+            case STRUCT:
+                final StructObjectInspector soi = (StructObjectInspector) oi;
+                final List<? extends StructField> fields = soi.getAllStructFieldRefs();
+                final VectorReader[] fieldReaders = new VectorReader[fields.size()];
+                for (int i = 0; i < fieldReaders.length; i++) {
+                    fieldReaders[i] = compile(fields.get(i).getFieldObjectInspector());
+                }
+                return new StructVectorReader(new StructFieldResolver(soi), fieldReaders);
+            case MAP:
+                final MapObjectInspector moi = (MapObjectInspector) oi;
+                return new MapVectorReader(compile(moi.getMapKeyObjectInspector()),
+                        compile(moi.getMapValueObjectInspector()));
+            default:
+                // fails on any non-null value
+                return new RowVectorReader(reader.compile(oi), PrimitiveCategory.UNKNOWN);
+        }
+    }
+
+    private VectorReader compileLeaf(final PrimitiveObjectInspector poi) {
+        final PrimitiveTypeInfo typeInfo = poi.getTypeInfo();
+        switch (typeInfo.getPrimitiveCategory()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case DATE:
+                return new LongVectorReader(typeInfo);
+            case FLOAT:
+            case DOUBLE:
+                return new DoubleVectorReader(typeInfo);
+            case STRING:
+                return new StringVectorReader(reader.isEnabled(Feature.STRINGIFY_COMPLEX_FIELDS));
+            default:
+                return new RowVectorReader(reader.compile(poi), typeInfo.getPrimitiveCategory());
+        }
+    }
+
+    /**
+     * Reads one JSON value into a row of a column vector.
+     */
+    private abstract static class VectorReader {
+
+        /**
+         * With {@link Feature#NULL_ON_ERROR}, the signal thrown when the JSON
+         * does not match the type; otherwise null.
+         */
+        SerDeException mismatch;
+
+        /**
+         * Reads the value at the parser's current token, which is not a JSON
+         * null, into the row, which it marks as not null. On return the parser
+         * is positioned on the last token of the value.
+         */
+        abstract void read(JsonParser parser, ColumnVector out, int row) throws IOException, SerDeException;
+
+        final void readNullable(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                setNull(out, row);
+            } else {
+                out.isNull[row] = false;
+                read(parser, out, row);
+            }
+        }
+
+        final void check(final boolean expression) throws SerDeException {
+            if (!expression) {
+                if (mismatch != null) {
+                    throw mismatch;
+                }
+                throw new IllegalArgumentException();
+            }
+        }
+
+        final void checkScalar(final JsonParser parser) throws SerDeException {
+            check(!parser.currentToken().isStructStart());
+        }
+    }
+
+    private final class StructVectorReader extends VectorReader {
+        private final StructFieldResolver resolver;
+        private final VectorReader[] fieldReaders;
+        private final boolean[] seen;
+
+        StructVectorReader(final StructFieldResolver resolver, final VectorReader[] fieldReaders) {
+            this.resolver = resolver;
+            this.fieldReaders = fieldReaders;
+            this.seen = new boolean[fieldReaders.length];
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            check(JsonToken.START_OBJECT == parser.currentToken());
+            final ColumnVector[] fields = ((StructColumnVector) out).fields;
+
+            Arrays.fill(seen, false);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final int fieldIndex = reader.getStructField(resolver, parser.getCurrentName());
+                parser.nextToken();
+                if (fieldIndex >= 0) {
+                    seen[fieldIndex] = true;
+                    fieldReaders[fieldIndex].readNullable(parser, fields[fieldIndex], row);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            for (int i = 0; i < seen.length; i++) {
+                if (!seen[i]) {
+                    setNull(fields[i], row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a child value to a list or map, growing the child vector
+     * geometrically since the number of elements is not known up front.
+     */
+    static int append(final MultiValuedColumnVector out, final ColumnVector child) {
+        final int index = out.childCount++;
+        if (index >= child.isNull.length) {
+            child.ensureSize(Math.max(16, index * 2), true);
+        }
+        return index;
+    }
+
+    private static final class ListVectorReader extends VectorReader {
+        private final VectorReader elementReader;
+
+        ListVectorReader(final VectorReader elementReader) {
+            this.elementReader = elementReader;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            check(JsonToken.START_ARRAY == parser.currentToken());
+            final ListColumnVector list = (ListColumnVector) out;
+
+            list.offsets[row] = list.childCount;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                elementReader.readNullable(parser, list.child, append(list, list.child));
+            }
+            list.lengths[row] = list.childCount - list.offsets[row];
+        }
+    }
+
+    private static final class MapVectorReader extends VectorReader {
+        private final VectorReader keyReader;
+        private final VectorReader valueReader;
+
+        MapVectorReader(final VectorReader keyReader, final VectorReader valueReader) {
+            this.keyReader = keyReader;
+            this.valueReader = valueReader;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            check(JsonToken.START_OBJECT == parser.currentToken());
+            final MapColumnVector map = (MapColumnVector) out;
+
+            map.offsets[row] = map.childCount;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final int index = append(map, map.keys);
+                if (index >= map.values.isNull.length) {
+                    map.values.ensureSize(map.keys.isNull.length, true);
+                }
+                map.keys.isNull[index] = false;
+                keyReader.read(parser, map.keys, index);
+                parser.nextToken();
+                valueReader.readNullable(parser, map.values, index);
+            }
+            map.lengths[row] = map.childCount - map.offsets[row];
+        }
+    }
+
+    /**
+     * Integer types, booleans and dates, which are all held in a
+     * {@link LongColumnVector}.
+     */
+    private static final class LongVectorReader extends VectorReader {
+        private final PrimitiveTypeInfo typeInfo;
+        private final FastDateTimeParser dateTimes = new FastDateTimeParser();
+
+        LongVectorReader(final PrimitiveTypeInfo typeInfo) {
+            this.typeInfo = typeInfo;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            checkScalar(parser);
+            final long value;
+            switch (typeInfo.getPrimitiveCategory()) {
+                case BOOLEAN:
+                    value = HiveJsonReader.asBoolean(parser) ? 1 : 0;
+                    break;
+                case BYTE:
+                    value = (byte) HiveJsonReader.asLong(parser);
+                    break;
+                case SHORT:
+                    value = (short) HiveJsonReader.asLong(parser);
+                    break;
+                case INT:
+                    value = (int) HiveJsonReader.asLong(parser);
+                    break;
+                case DATE:
+                    if (parser.currentToken() == JsonToken.VALUE_STRING && dateTimes.parseDate(
+                            parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+                        value = dateTimes.getEpochDay();
+                    } else {
+                        value = Date.valueOf(HiveJsonReader.asText(parser)).toEpochDay();
+                    }
+                    break;
+                default:
+                    value = HiveJsonReader.asLong(parser);
+                    break;
+            }
+            ((LongColumnVector) out).vector[row] = value;
+        }
+    }
+
+    private static final class DoubleVectorReader extends VectorReader {
+        private final boolean isFloat;
+
+        DoubleVectorReader(final PrimitiveTypeInfo typeInfo) {
+            this.isFloat = typeInfo.getPrimitiveCategory() == PrimitiveCategory.FLOAT;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            checkScalar(parser);
+            final double value = HiveJsonReader.asDouble(parser);
+            ((DoubleColumnVector) out).vector[row] = isFloat ? (float) value : value;
+        }
+    }
+
+    private static final class StringVectorReader extends VectorReader {
+        private final boolean stringifyComplexFields;
+        private byte[] utf8 = new byte[64];
+
+        StringVectorReader(final boolean stringifyComplexFields) {
+            this.stringifyComplexFields = stringifyComplexFields;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            final JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_STRING || token == JsonToken.FIELD_NAME) {
+                // Encode the token characters straight into the vector, no String
+                final int length = parser.getTextLength();
+                if (utf8.length < length * 3) {
+                    utf8 = new byte[length * 3];
+                }
+                final int n = HiveJsonReader.encodeUtf8(
+                        parser.getTextCharacters(), parser.getTextOffset(), length, utf8);
+                ((BytesColumnVector) out).setVal(row, utf8, 0, n);
+                return;
+            }
+
+            final String value;
+            if (!token.isStructStart()) {
+                value = HiveJsonReader.asText(parser);
+            } else if (stringifyComplexFields) {
+                value = parser.readValueAsTree().toString();
+            } else if (mismatch != null) {
+                throw mismatch;
+            } else {
+                throw new SerDeException("Complex field found in JSON does not match table definition: string");
+            }
+            ((BytesColumnVector) out).setVal(row, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads a primitive value with the row reader and copies it into the
+     * vector.
+     */
+    private static final class RowVectorReader extends VectorReader {
+        private final HiveJsonReader.ValueReader rowReader;
+        private final PrimitiveCategory category;
+
+        RowVectorReader(final HiveJsonReader.ValueReader rowReader, final PrimitiveCategory category) {
+            this.rowReader = rowReader;
+            this.category = category;
+        }
+
+        @Override
+        void read(final JsonParser parser, final ColumnVector out, final int row)
+                throws IOException, SerDeException {
+            final Object value = rowReader.read(parser, null);
+            if (value == null) {
+                setNull(out, row);
+                return;
+            }
+            switch (category) {
+                case TIMESTAMP:
+                    final Timestamp ts = (Timestamp) value;
+                    ((TimestampColumnVector) out).time[row] = ts.toEpochMilli();
+                    ((TimestampColumnVector) out).nanos[row] = ts.getNanos();
+                    break;
+                case DECIMAL:
+                    ((DecimalColumnVector) out).set(row, (HiveDecimal) value);
+                    break;
+                case VARCHAR:
+                    ((BytesColumnVector) out).setVal(row, ((HiveVarchar) value).getValue()
+                            .getBytes(StandardCharsets.UTF_8));
+                    break;
+                case CHAR:
+                    ((BytesColumnVector) out).setVal(row, ((HiveChar) value).getStrippedValue()
+                            .getBytes(StandardCharsets.UTF_8));
+                    break;
+                case BINARY:
+                    ((BytesColumnVector) out).setVal(row, (byte[]) value);
+                    break;
+                default:
+                    throw new SerDeException("Vectorized parsing of: " + category + " is not supported");
+            }
+        }
+    }
+}
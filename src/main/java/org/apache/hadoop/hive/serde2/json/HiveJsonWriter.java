@@ -18,13 +18,21 @@
 
 package org.apache.hadoop.hive.serde2.json;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.hadoop.hive.common.type.Timestamp;
 import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.TimestampWritableV2;
 import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -47,38 +55,52 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.ShortObjectInspec
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.TimestampObjectInspector;
 import org.apache.hadoop.io.Text;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ContainerNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.ValueNode;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 
 /**
  * A class which takes Java Objects and a ObjectInspector to produce a JSON
  * string representation of the structure. The Java Object can be a Collection
  * containing other Collections and therefore can be thought of as a tree or as
  * a directed acyclic graph that must be walked and each node recorded as JSON.
+ * <p>
+ * The ObjectInspector is compiled once into a tree of writers with the field
+ * names already encoded, which then write every value straight to a
+ * {@link JsonGenerator}; no intermediate JSON tree is built. The generator
+ * and the buffer it writes UTF-8 into are kept between calls, which makes an
+ * instance not thread safe. Besides a String, the JSON text can be written to
+ * a {@link Text}, an {@link OutputStream} or a {@link ByteBuffer} without
+ * decoding it.
  */
 public class HiveJsonWriter {
 
-    private static final Logger LOG =
-            LoggerFactory.getLogger(HiveJsonWriter.class);
-
     private final EnumSet<Feature> features = EnumSet.noneOf(Feature.class);
 
     private final List<String> rootStructFieldNames;
 
-    private final JsonNodeFactory nodeFactory;
-    private final ObjectMapper mapper;
+    private final JsonFactory factory;
+    private final OutputBuffer buffer = new OutputBuffer();
+    private final FastValueFormatter formatter = new FastValueFormatter();
     private BinaryEncoding binaryEncoding;
 
+    /**
+     * Writers compiled from {@link #planOI}, the ObjectInspector of the last
+     * write; reset whenever the configuration changes.
+     */
+    private ObjectInspector planOI;
+    private ValueWriter plan;
+
+    /**
+     * Generator writing to {@link #buffer}, kept from one document to the
+     * next; reset whenever the configuration changes.
+     */
+    private JsonGenerator generator;
+
     /**
      * Enumeration that defines all on/off features for this writer.
      */
@@ -103,8 +125,8 @@ public class HiveJsonWriter {
                           final List<String> rootStructFieldNames) {
         this.binaryEncoding = encoding;
         this.rootStructFieldNames = rootStructFieldNames;
-        this.nodeFactory = JsonNodeFactory.instance;
-        this.mapper = new ObjectMapper();
+        // documents are written one after the other by the same generator
+        this.factory = new JsonFactory().setRootValueSeparator(null);
     }
 
     /**
@@ -118,247 +140,614 @@ public class HiveJsonWriter {
      */
     public String write(final Object o, final ObjectInspector objInspector)
             throws SerDeException {
+        writeToBuffer(o, objInspector);
+        return this.buffer.toUtf8String();
+    }
 
-        final JsonNode rootNode =
-                walkObjectGraph(objInspector, o, rootStructFieldNames);
-
-        LOG.debug("Create JSON tree from Object tree: {}", rootNode);
+    /**
+     * Given an Object and an ObjectInspector, convert the structure into JSON
+     * text and set it as the UTF-8 content of a Text, without creating a
+     * String.
+     *
+     * @param o The object to convert
+     * @param objInspector The ObjectInspector describing the object
+     * @param out The Text that receives the JSON text
+     * @throws SerDeException The object cannot be transformed
+     */
+    public void write(final Object o, final ObjectInspector objInspector, final Text out)
+            throws SerDeException {
+        writeToBuffer(o, objInspector);
+        this.buffer.copyTo(out);
+    }
 
+    /**
+     * Given an Object and an ObjectInspector, convert the structure into JSON
+     * text and append it to a stream as UTF-8, without creating a String. A
+     * Hadoop {@code DataOutputBuffer} receives the bytes in a single copy.
+     *
+     * @param o The object to convert
+     * @param objInspector The ObjectInspector describing the object
+     * @param out The stream to append the JSON text to; it is not flushed
+     * @throws SerDeException The object cannot be transformed or written
+     */
+    public void write(final Object o, final ObjectInspector objInspector, final OutputStream out)
+            throws SerDeException {
+        writeToBuffer(o, objInspector);
         try {
-            final ObjectWriter ow = isEnabled(Feature.PRETTY_PRINT)
-                    ? this.mapper.writerWithDefaultPrettyPrinter()
-                    : this.mapper.writer();
-
-            return ow.writeValueAsString(rootNode);
-        } catch (JsonProcessingException e) {
+            this.buffer.writeTo(out);
+        } catch (IOException e) {
             throw new SerDeException(e);
         }
     }
 
     /**
-     * Walk the object graph.
+     * Given an Object and an ObjectInspector, convert the structure into JSON
+     * text and put it into a buffer as UTF-8, starting at its position.
      *
-     * @param oi The ObjectInspector describing the Object
      * @param o The object to convert
-     * @param fieldNames List of field names to use, default names used otherwise
-     * @return A JsonNode representation of the Object
-     * @throws SerDeException The Object cannot be parsed
+     * @param objInspector The ObjectInspector describing the object
+     * @param out The buffer to put the JSON text into
+     * @return The number of bytes put into the buffer
+     * @throws SerDeException The object cannot be transformed
+     * @throws BufferOverflowException The JSON text does not fit into the
+     *           remaining space of the buffer; nothing is put into it then
      */
-    private JsonNode walkObjectGraph(final ObjectInspector oi, final Object o,
-                                     final List<String> fieldNames)
+    public int write(final Object o, final ObjectInspector objInspector, final ByteBuffer out)
             throws SerDeException {
+        writeToBuffer(o, objInspector);
+        return this.buffer.copyTo(out);
+    }
 
-        if (o != null) {
-            switch (oi.getCategory()) {
-                case LIST:
-                    return visitList(oi, o);
-                case STRUCT:
-                    return visitStruct(oi, o, fieldNames);
-                case MAP:
-                    return visitMap(oi, o);
-                case PRIMITIVE:
-                    return primitiveToNode(oi, o);
-                case UNION:
-                    return visitUnion(oi, o);
-                default:
-                    throw new SerDeException(
-                            "Parsing of: " + oi.getCategory() + " is not supported");
+    /**
+     * Writes the JSON text into {@link #buffer} with the generator that is
+     * kept for all documents. The generator is dropped after a failure, which
+     * may leave it in the middle of a value.
+     */
+    private void writeToBuffer(final Object o, final ObjectInspector objInspector)
+            throws SerDeException {
+        this.buffer.reset();
+        try {
+            if (this.generator == null) {
+                this.generator = this.factory.createGenerator(this.buffer, JsonEncoding.UTF8);
+                if (isEnabled(Feature.PRETTY_PRINT)) {
+                    this.generator.setPrettyPrinter(new DefaultPrettyPrinter((String) null));
+                }
             }
+            if (objInspector != this.planOI) {
+                this.plan = compile(objInspector, rootStructFieldNames);
+                this.planOI = objInspector;
+            }
+            this.plan.writeNullable(this.generator, o);
+            this.generator.flush();
+        } catch (IOException e) {
+            this.generator = null;
+            throw new SerDeException(e);
+        } catch (SerDeException | RuntimeException e) {
+            this.generator = null;
+            throw e;
         }
-        return this.nodeFactory.nullNode();
     }
 
     /**
-     * Visit a vertex in the graph that is a Java Map.
+     * Compiles the ObjectInspector tree into a tree of value writers. The
+     * inspectors are cast, and the field names encoded and quoted, once here
+     * rather than for every value of every row.
      *
-     * @param oi The map's ObjectInspector
-     * @param o The Map object
-     * @return A JsonNode representation of the Map
-     * @throws SerDeException The Map cannot be parsed
+     * @param oi The ObjectInspector to compile
+     * @param fieldNames List of field names to use, default names used otherwise
+     * @return The writer for values of the given type
      */
-    private ObjectNode visitMap(final ObjectInspector oi, final Object o)
-            throws SerDeException {
-        final MapObjectInspector moi = (MapObjectInspector) oi;
-
-        final ObjectInspector mapKeyInspector = moi.getMapKeyObjectInspector();
-        final ObjectInspector mapValueInspector = moi.getMapValueObjectInspector();
-
-        final Map<?, ?> map = moi.getMap(o);
-        final ObjectNode objectNode = this.nodeFactory.objectNode();
+    private ValueWriter compile(final ObjectInspector oi, final List<String> fieldNames) {
+        switch (oi.getCategory()) {
+            case LIST:
+                final ListObjectInspector loi = (ListObjectInspector) oi;
+                return new ListWriter(loi, compile(loi.getListElementObjectInspector(), Collections.emptyList()));
+            case STRUCT:
+                final StructObjectInspector soi = (StructObjectInspector) oi;
+                final List<? extends StructField> fields = soi.getAllStructFieldRefs();
+                final SerializedString[] names = new SerializedString[fields.size()];
+                final ValueWriter[] fieldWriters = new ValueWriter[fields.size()];
+                for (int i = 0; i < names.length; i++) {
+                    final StructField field = fields.get(i);
+                    // Map field names to something else if require
+                    names[i] = new SerializedString(fieldNames.isEmpty() ? field.getFieldName()
+                            : fieldNames.get(field.getFieldID()));
+                    fieldWriters[i] = compile(field.getFieldObjectInspector(), Collections.emptyList());
+                }
+                return new StructWriter(soi, fields.toArray(new StructField[0]), names, fieldWriters);
+            case MAP:
+                final MapObjectInspector moi = (MapObjectInspector) oi;
+                return new MapWriter(moi,
+                        compileLeaf((PrimitiveObjectInspector) moi.getMapKeyObjectInspector()),
+                        compile(moi.getMapValueObjectInspector(), Collections.emptyList()));
+            case PRIMITIVE:
+                return compileLeaf((PrimitiveObjectInspector) oi);
+            case UNION:
+                final UnionObjectInspector uoi = (UnionObjectInspector) oi;
+                final List<ObjectInspector> ois = uoi.getObjectInspectors();
+                final SerializedString[] tags = new SerializedString[ois.size()];
+                final ValueWriter[] writers = new ValueWriter[ois.size()];
+                for (int i = 0; i < tags.length; i++) {
+                    tags[i] = new SerializedString(Byte.toString((byte) i));
+                    writers[i] = compile(ois.get(i), Collections.emptyList());
+                }
+                return new UnionWriter(uoi, tags, writers);
+            default:
+                return new FailingWriter("Parsing of: " + oi.getCategory() + " is not supported");
+        }
+    }
 
-        for (Map.Entry<?, ?> entry : map.entrySet()) {
-            final JsonNode keyNode = primitiveToNode(mapKeyInspector, entry.getKey());
-            final JsonNode valueNode = walkObjectGraph(mapValueInspector,
-                    entry.getValue(), Collections.emptyList());
-            objectNode.set(keyNode.asText(), valueNode);
+    /**
+     * Compiles the writer of a primitive value. Numbers and booleans are
+     * written as JSON numbers and booleans; the other types as strings.
+     * Strings held in a {@link Text} are copied as UTF-8 bytes. Floats,
+     * doubles, decimals, dates and timestamps are formatted by
+     * {@link #formatter} without creating a String.
+     *
+     * @param poi The ObjectInspector of the value
+     * @return The writer for values of the given type
+     */
+    private LeafWriter compileLeaf(final PrimitiveObjectInspector poi) {
+        switch (poi.getPrimitiveCategory()) {
+            case BINARY:
+                final BinaryObjectInspector binaryOI = (BinaryObjectInspector) poi;
+                if (this.binaryEncoding == BinaryEncoding.BASE64) {
+                    return new LeafWriter() {
+                        @Override
+                        void write(final JsonGenerator gen, final Object o) throws IOException {
+                            gen.writeBinary(binaryOI.getPrimitiveJavaObject(o));
+                        }
+
+                        @Override
+                        String text(final Object o) {
+                            return Base64Variants.getDefaultVariant().encode(binaryOI.getPrimitiveJavaObject(o));
+                        }
+                    };
+                }
+                if (this.binaryEncoding == BinaryEncoding.RAWSTRING) {
+                    return new TextLeafWriter() {
+                        @Override
+                        String text(final Object o) {
+                            return getRawString(binaryOI.getPrimitiveJavaObject(o));
+                        }
+                    };
+                }
+                return new FailingWriter("Error generating JSON binary type from record.");
+            case BOOLEAN:
+                final BooleanObjectInspector booleanOI = (BooleanObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeBoolean(booleanOI.get(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return String.valueOf(booleanOI.get(o));
+                    }
+                };
+            case BYTE:
+                final ByteObjectInspector byteOI = (ByteObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeNumber(byteOI.get(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return String.valueOf(byteOI.get(o));
+                    }
+                };
+            case SHORT:
+                final ShortObjectInspector shortOI = (ShortObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeNumber(shortOI.get(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return String.valueOf(shortOI.get(o));
+                    }
+                };
+            case INT:
+                final IntObjectInspector intOI = (IntObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeNumber(intOI.get(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return String.valueOf(intOI.get(o));
+                    }
+                };
+            case LONG:
+                final LongObjectInspector longOI = (LongObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeNumber(longOI.get(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return String.valueOf(longOI.get(o));
+                    }
+                };
+            case FLOAT:
+                final FloatObjectInspector floatOI = (FloatObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        final float value = floatOI.get(o);
+                        if (Float.isFinite(value)) {
+                            gen.writeNumber(formatter.getChars(), 0, formatter.formatFloat(value));
+                        } else {
+                            gen.writeNumber(value);
+                        }
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        final float value = floatOI.get(o);
+                        if (Float.isFinite(value)) {
+                            return new String(formatter.getChars(), 0, formatter.formatFloat(value));
+                        }
+                        return String.valueOf(value);
+                    }
+                };
+            case DOUBLE:
+                final DoubleObjectInspector doubleOI = (DoubleObjectInspector) poi;
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        final double value = doubleOI.get(o);
+                        if (Double.isFinite(value)) {
+                            gen.writeNumber(formatter.getChars(), 0, formatter.formatDouble(value));
+                        } else {
+                            gen.writeNumber(value);
+                        }
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        final double value = doubleOI.get(o);
+                        if (Double.isFinite(value)) {
+                            return new String(formatter.getChars(), 0, formatter.formatDouble(value));
+                        }
+                        return String.valueOf(value);
+                    }
+                };
+            case DECIMAL:
+                final HiveDecimalObjectInspector decimalOI = (HiveDecimalObjectInspector) poi;
+                final boolean writableDecimal = decimalOI.preferWritable();
+                return new LeafWriter() {
+                    @Override
+                    void write(final JsonGenerator gen, final Object o) throws IOException {
+                        gen.writeNumber(formatter.getChars(), 0, format(o));
+                    }
+
+                    @Override
+                    String text(final Object o) {
+                        return new String(formatter.getChars(), 0, format(o));
+                    }
+
+                    private int format(final Object o) {
+                        if (writableDecimal) {
+                            return formatter.formatDecimal(decimalOI.getPrimitiveWritableObject(o));
+                        }
+                        return formatter.formatDecimal(decimalOI.getPrimitiveJavaObject(o));
+                    }
+                };
+            case STRING:
+                final StringObjectInspector stringOI = (StringObjectInspector) poi;
+                if (stringOI.preferWritable()) {
+                    return new TextLeafWriter() {
+                        @Override
+                        void write(final JsonGenerator gen, final Object o) throws IOException {
+                            final Text text = stringOI.getPrimitiveWritableObject(o);
+                            gen.writeUTF8String(text.getBytes(), 0, text.getLength());
+                        }
+
+                        @Override
+                        String text(final Object o) {
+                            return stringOI.getPrimitiveJavaObject(o);
+                        }
+                    };
+                }
+                return new TextLeafWriter() {
+                    @Override
+                    String text(final Object o) {
+                        return stringOI.getPrimitiveJavaObject(o);
+                    }
+                };
+            case CHAR:
+                final HiveCharObjectInspector charOI = (HiveCharObjectInspector) poi;
+                return new TextLeafWriter() {
+                    @Override
+                    String text(final Object o) {
+                        return charOI.getPrimitiveJavaObject(o).toString();
+                    }
+                };
+            case VARCHAR:
+                final HiveVarcharObjectInspector varcharOI = (HiveVarcharObjectInspector) poi;
+                return new TextLeafWriter() {
+                    @Override
+                    String text(final Object o) {
+                        return varcharOI.getPrimitiveJavaObject(o).toString();
+                    }
+                };
+            case DATE:
+                final DateObjectInspector dateOI = (DateObjectInspector) poi;
+                final boolean writableDate = dateOI.preferWritable();
+                return new DateTimeLeafWriter() {
+                    @Override
+                    int format(final Object o) {
+                        if (writableDate) {
+                            return formatter.formatDate(dateOI.getPrimitiveWritableObject(o).getDays());
+                        }
+                        return formatter.formatDate(dateOI.getPrimitiveJavaObject(o).toEpochDay());
+                    }
+
+                    @Override
+                    String fallback(final Object o) {
+                        return dateOI.getPrimitiveJavaObject(o).toString();
+                    }
+                };
+            case TIMESTAMP:
+                final TimestampObjectInspector timestampOI = (TimestampObjectInspector) poi;
+                final boolean writableTimestamp = timestampOI.preferWritable();
+                return new DateTimeLeafWriter() {
+                    @Override
+                    int format(final Object o) {
+                        if (writableTimestamp) {
+                            final TimestampWritableV2 value = timestampOI.getPrimitiveWritableObject(o);
+                            return formatter.formatTimestamp(value.getSeconds(), value.getNanos());
+                        }
+                        final Timestamp value = timestampOI.getPrimitiveJavaObject(o);
+                        return formatter.formatTimestamp(value.toEpochSecond(), value.getNanos());
+                    }
+
+                    @Override
+                    String fallback(final Object o) {
+                        return timestampOI.getPrimitiveJavaObject(o).toString();
+                    }
+                };
+            default:
+                return new FailingWriter("Unsupported type: " + poi.getPrimitiveCategory());
         }
+    }
 
-        return objectNode;
+    private static String getRawString(final byte[] buf) {
+        final Text txt = new Text();
+        txt.set(buf, 0, buf.length);
+        return txt.toString();
     }
 
     /**
-     * Visit a vertex in the graph that is a Java List.
-     *
-     * @param oi The list's ObjectInspector
-     * @param o The List object
-     * @return A JsonNode representation of the List
-     * @throws SerDeException The List cannot be parsed
+     * Writes one non-null value as JSON.
      */
-    private ContainerNode<?> visitList(final ObjectInspector oi, final Object o)
-            throws SerDeException {
-        final ListObjectInspector loi = (ListObjectInspector) oi;
+    private abstract static class ValueWriter {
 
-        final List<?> list = loi.getList(o);
-        final ArrayNode arrayNode = this.nodeFactory.arrayNode(list.size());
+        abstract void write(JsonGenerator gen, Object o) throws IOException, SerDeException;
 
-        for (final Object item : list) {
-            final JsonNode valueNode = walkObjectGraph(
-                    loi.getListElementObjectInspector(), item, Collections.emptyList());
-            arrayNode.add(valueNode);
+        final void writeNullable(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            if (o == null) {
+                gen.writeNull();
+            } else {
+                write(gen, o);
+            }
         }
+    }
 
-        return arrayNode;
+    /**
+     * Writes a primitive value, which may also be the key of a map.
+     */
+    private abstract static class LeafWriter extends ValueWriter {
+
+        /**
+         * @return the text of the JSON value, as used for the keys of a map
+         */
+        abstract String text(Object o) throws SerDeException;
     }
 
     /**
-     * Visit a vertex in the graph that is a struct data type. A struct is
-     * represented as a Java List where the name associated with each element in
-     * the list is stored in the ObjectInspector.
-     *
-     * @param oi The struct's ObjectInspector
-     * @param o The List object
-     * @param fieldNames List of names to override the default field names
-     * @return A JsonNode representation of the List
-     * @throws SerDeException The struct cannot be parsed
+     * Writes a primitive value as a JSON string.
      */
-    private ObjectNode visitStruct(final ObjectInspector oi, final Object o,
-                                   final List<String> fieldNames) throws SerDeException {
-        final StructObjectInspector structInspector = (StructObjectInspector) oi;
+    private abstract static class TextLeafWriter extends LeafWriter {
 
-        final ObjectNode structNode = this.nodeFactory.objectNode();
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            gen.writeString(text(o));
+        }
+    }
 
-        for (final StructField field : structInspector.getAllStructFieldRefs()) {
-            final Object fieldValue = structInspector.getStructFieldData(o, field);
-            final ObjectInspector coi = field.getFieldObjectInspector();
-            final JsonNode fieldNode =
-                    walkObjectGraph(coi, fieldValue, Collections.emptyList());
+    /**
+     * Writes a date or timestamp as a JSON string formatted by
+     * {@link #formatter}, or from its {@code toString} when the formatter
+     * does not cover the value.
+     */
+    private abstract class DateTimeLeafWriter extends LeafWriter {
+
+        /**
+         * @return the length of the text in the formatter or -1
+         */
+        abstract int format(Object o);
+
+        abstract String fallback(Object o);
+
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException {
+            final int length = format(o);
+            if (length < 0) {
+                gen.writeString(fallback(o));
+            } else {
+                gen.writeString(formatter.getChars(), 0, length);
+            }
+        }
 
-            // Map field names to something else if require
-            final String fieldName = (fieldNames.isEmpty()) ? field.getFieldName()
-                    : fieldNames.get(field.getFieldID());
+        @Override
+        String text(final Object o) {
+            final int length = format(o);
+            return length < 0 ? fallback(o) : new String(formatter.getChars(), 0, length);
+        }
+    }
 
-            structNode.set(fieldName, fieldNode);
+    /**
+     * Writes a struct as a JSON object with pre-encoded field names.
+     */
+    private static final class StructWriter extends ValueWriter {
+        private final StructObjectInspector oi;
+        private final StructField[] fields;
+        private final SerializedString[] names;
+        private final ValueWriter[] fieldWriters;
+
+        StructWriter(final StructObjectInspector oi, final StructField[] fields,
+                     final SerializedString[] names, final ValueWriter[] fieldWriters) {
+            this.oi = oi;
+            this.fields = fields;
+            this.names = names;
+            this.fieldWriters = fieldWriters;
         }
 
-        return structNode;
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            gen.writeStartObject();
+            for (int i = 0; i < fields.length; i++) {
+                gen.writeFieldName(names[i]);
+                fieldWriters[i].writeNullable(gen, oi.getStructFieldData(o, fields[i]));
+            }
+            gen.writeEndObject();
+        }
     }
 
     /**
-     * Visit a vertex in the graph that is a union data type.
-     *
-     * @param oi The union's ObjectInspector
-     * @param o The Union object
-     * @return A JsonNode representation of the union
-     * @throws SerDeException The union cannot be parsed
+     * Writes a list as a JSON array.
      */
-    private ObjectNode visitUnion(final ObjectInspector oi, final Object o)
-            throws SerDeException {
-        final UnionObjectInspector unionInspector = (UnionObjectInspector) oi;
+    private static final class ListWriter extends ValueWriter {
+        private final ListObjectInspector oi;
+        private final ValueWriter elementWriter;
 
-        final ObjectNode unionNode = this.nodeFactory.objectNode();
+        ListWriter(final ListObjectInspector oi, final ValueWriter elementWriter) {
+            this.oi = oi;
+            this.elementWriter = elementWriter;
+        }
 
-        final byte tag = unionInspector.getTag(o);
-        final String tagText = Byte.toString(tag);
-        final JsonNode valueNode =
-                walkObjectGraph(unionInspector.getObjectInspectors().get(tag),
-                        unionInspector.getField(o), Collections.emptyList());
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            gen.writeStartArray();
+            for (final Object item : oi.getList(o)) {
+                elementWriter.writeNullable(gen, item);
+            }
+            gen.writeEndArray();
+        }
+    }
 
-        unionNode.set(tagText, valueNode);
+    /**
+     * Writes a map as a JSON object. Keys are written as the text of their
+     * JSON value.
+     */
+    private static final class MapWriter extends ValueWriter {
+        private final MapObjectInspector oi;
+        private final LeafWriter keyWriter;
+        private final ValueWriter valueWriter;
+
+        MapWriter(final MapObjectInspector oi, final LeafWriter keyWriter, final ValueWriter valueWriter) {
+            this.oi = oi;
+            this.keyWriter = keyWriter;
+            this.valueWriter = valueWriter;
+        }
 
-        return unionNode;
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            gen.writeStartObject();
+            for (Map.Entry<?, ?> entry : oi.getMap(o).entrySet()) {
+                gen.writeFieldName(keyWriter.text(entry.getKey()));
+                valueWriter.writeNullable(gen, entry.getValue());
+            }
+            gen.writeEndObject();
+        }
     }
 
     /**
-     * Convert a primitive Java object to a JsonNode.
-     *
-     * @param oi The primitive ObjectInspector
-     * @param o The primitive Object
-     * @return A JSON node containing the value of the primitive Object
-     * @throws SerDeException The primitive value cannot be parsed
+     * Writes a union as a JSON object with the tag as the only field name.
      */
-    private ValueNode primitiveToNode(final ObjectInspector oi, final Object o)
-            throws SerDeException {
-        final PrimitiveObjectInspector poi = (PrimitiveObjectInspector) oi;
+    private static final class UnionWriter extends ValueWriter {
+        private final UnionObjectInspector oi;
+        private final SerializedString[] tags;
+        private final ValueWriter[] writers;
+
+        UnionWriter(final UnionObjectInspector oi, final SerializedString[] tags, final ValueWriter[] writers) {
+            this.oi = oi;
+            this.tags = tags;
+            this.writers = writers;
+        }
 
-        switch (poi.getPrimitiveCategory()) {
-            case BINARY:
-                return getByteValue(
-                        ((BinaryObjectInspector) poi).getPrimitiveJavaObject(o));
-            case BOOLEAN:
-                return this.nodeFactory.booleanNode(((BooleanObjectInspector) poi).get(o));
-            case BYTE:
-                return this.nodeFactory.numberNode(((ByteObjectInspector) poi).get(o));
-            case DATE:
-                return this.nodeFactory.textNode(
-                        ((DateObjectInspector) poi).getPrimitiveJavaObject(o).toString());
-            case DECIMAL:
-                return this.nodeFactory.numberNode(((HiveDecimalObjectInspector) poi)
-                        .getPrimitiveJavaObject(o).bigDecimalValue());
-            case DOUBLE:
-                return this.nodeFactory.numberNode(((DoubleObjectInspector) poi).get(o));
-            case FLOAT:
-                return this.nodeFactory.numberNode(((FloatObjectInspector) poi).get(o));
-            case INT:
-                return this.nodeFactory.numberNode(((IntObjectInspector) poi).get(o));
-            case LONG:
-                return this.nodeFactory.numberNode(((LongObjectInspector) poi).get(o));
-            case SHORT:
-                return this.nodeFactory.numberNode(((ShortObjectInspector) poi).get(o));
-            case STRING:
-                return this.nodeFactory
-                        .textNode(((StringObjectInspector) poi).getPrimitiveJavaObject(o));
-            case CHAR:
-                return this.nodeFactory.textNode(
-                        ((HiveCharObjectInspector) poi).getPrimitiveJavaObject(o).toString());
-            case VARCHAR:
-                return this.nodeFactory.textNode(((HiveVarcharObjectInspector) poi)
-                        .getPrimitiveJavaObject(o).toString());
-            case TIMESTAMP:
-                return this.nodeFactory.textNode(((TimestampObjectInspector) poi)
-                        .getPrimitiveJavaObject(o).toString());
-            default:
-                throw new SerDeException(
-                        "Unsupported type: " + poi.getPrimitiveCategory());
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws IOException, SerDeException {
+            final byte tag = oi.getTag(o);
+            gen.writeStartObject();
+            gen.writeFieldName(tags[tag]);
+            writers[tag].writeNullable(gen, oi.getField(o));
+            gen.writeEndObject();
         }
     }
 
     /**
-     * Convert a byte array into a text representation.
-     *
-     * @param o The byte array to convert to text
-     * @return A JsonNode with the binary data encoded
-     * @throws SerDeException The struct cannot be parsed
+     * Fails on any non-null value, for types this writer cannot produce.
      */
-    private ValueNode getByteValue(final byte[] buf) throws SerDeException {
-        switch (this.binaryEncoding) {
-            case RAWSTRING:
-                final Text txt = new Text();
-                txt.set(buf, 0, buf.length);
-                return this.nodeFactory.textNode(txt.toString());
-            case BASE64:
-                return this.nodeFactory.binaryNode(buf);
-            default:
-                throw new SerDeException(
-                        "Error generating JSON binary type from record.");
+    private static final class FailingWriter extends LeafWriter {
+        private final String message;
+
+        FailingWriter(final String message) {
+            this.message = message;
+        }
+
+        @Override
+        void write(final JsonGenerator gen, final Object o) throws SerDeException {
+            throw new SerDeException(message);
+        }
+
+        @Override
+        String text(final Object o) throws SerDeException {
+            throw new SerDeException(message);
+        }
+    }
+
+    /**
+     * Output stream whose array is reused from one document to the next.
+     */
+    private static final class OutputBuffer extends ByteArrayOutputStream {
+        OutputBuffer() {
+            super(1024);
+        }
+
+        String toUtf8String() {
+            return new String(buf, 0, count, StandardCharsets.UTF_8);
+        }
+
+        void copyTo(final Text out) {
+            out.set(buf, 0, count);
+        }
+
+        int copyTo(final ByteBuffer out) {
+            out.put(buf, 0, count);
+            return count;
         }
     }
 
     public void enable(Feature feature) {
         this.features.add(feature);
+        this.generator = null;
     }
 
     public void disable(Feature feature) {
         this.features.remove(feature);
+        this.generator = null;
     }
 
     public Set<Feature> getFeatures() {
@@ -375,6 +764,8 @@ public class HiveJsonWriter {
 
     public void setBinaryEncoding(BinaryEncoding encoding) {
         this.binaryEncoding = encoding;
+        this.planOI = null;
+        this.plan = null;
     }
 
     @Override
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the structural characters ({@code { } [ ] : ,}) of a JSON
+ * document that are outside of strings, together with the position of the
+ * matching closing bracket of every opening one.
+ * <p>
+ * The document is scanned eight bytes at a time: a SWAR (SIMD within a
+ * register) comparison marks the quotes, backslashes and structural
+ * characters of a 64-bit word, and only the marked bytes are looked at one by
+ * one. Everything in between, which is most of a document, costs a few
+ * arithmetic operations per eight bytes.
+ * <p>
+ * Only the nesting of brackets and the termination of strings are checked;
+ * the tokens between the structural characters are left to the caller. An
+ * instance keeps its arrays between documents and is not thread safe.
+ */
+final class JsonStructuralIndex {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    private static final long CASE = 0x2020202020202020L;
+
+    private static final long QUOTE = '"' * ONES;
+    private static final long BACKSLASH = '\\' * ONES;
+    private static final long COLON = ':' * ONES;
+    private static final long COMMA = ',' * ONES;
+    // '[' and ']' differ from '{' and '}' in bit 5 only
+    private static final long OPEN = '{' * ONES;
+    private static final long CLOSE = '}' * ONES;
+
+    private byte[] data;
+    private int[] positions = new int[256];
+    private int[] matches = new int[256];
+    private int size;
+    private int[] stack = new int[32];
+    private int depth;
+
+    // scan state that carries over from one word to the next
+    private boolean inString;
+    private int escaped;
+
+    /**
+     * Indexes the document in {@code data[offset, offset + length)}.
+     *
+     * @return false if the document is not an object or its brackets or
+     *         strings are not terminated properly
+     */
+    boolean build(final byte[] data, final int offset, final int length) {
+        this.data = data;
+        this.size = 0;
+        this.depth = 0;
+        this.inString = false;
+        this.escaped = -1;
+
+        final int end = offset + length;
+        int pos = offset;
+        while (pos < end && isWhitespace(data[pos])) {
+            pos++;
+        }
+        if (pos == end || data[pos] != '{') {
+            return false;
+        }
+
+        for (; pos + 8 <= end; pos += 8) {
+            final long word = getLong(data, pos);
+            final long folded = word | CASE;
+            long marks = equalBytes(word, QUOTE) | equalBytes(word, BACKSLASH) | equalBytes(word, COLON)
+                    | equalBytes(word, COMMA) | equalBytes(folded, OPEN) | equalBytes(folded, CLOSE);
+            while (marks != 0) {
+                if (!mark(pos + (Long.numberOfTrailingZeros(marks) >>> 3))) {
+                    return false;
+                }
+                marks &= marks - 1;
+            }
+        }
+        for (; pos < end; pos++) {
+            final byte b = data[pos];
+            if (b == '"' || b == '\\' || b == ':' || b == ',' || (b | 0x20) == '{' || (b | 0x20) == '}') {
+                if (!mark(pos)) {
+                    return false;
+                }
+            }
+        }
+        return !inString && depth == 0;
+    }
+
+    /**
+     * Handles a byte that may be structural.
+     *
+     * @return false if a closing bracket does not match
+     */
+    private boolean mark(final int pos) {
+        if (pos == escaped) {
+            return true;
+        }
+        final byte b = data[pos];
+        if (inString) {
+            if (b == '"') {
+                inString = false;
+            } else if (b == '\\') {
+                escaped = pos + 1;
+            }
+            return true;
+        }
+        switch (b) {
+            case '"':
+                inString = true;
+                return true;
+            case '\\':
+                return true;
+            case '{':
+            case '[':
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = size;
+                add(pos);
+                return true;
+            case '}':
+            case ']':
+                if (depth == 0 || data[positions[stack[depth - 1]]] != (b == '}' ? '{' : '[')) {
+                    return false;
+                }
+                matches[stack[--depth]] = size;
+                add(pos);
+                return true;
+            default:
+                add(pos);
+                return true;
+        }
+    }
+
+    private void add(final int pos) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            matches = Arrays.copyOf(matches, size * 2);
+        }
+        positions[size++] = pos;
+    }
+
+    /**
+     * @return the high bit of every byte of {@code word} that equals the byte
+     *         repeated in {@code pattern}, without false positives
+     */
+    private static long equalBytes(final long word, final long pattern) {
+        final long x = word ^ pattern;
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+    private static long getLong(final byte[] data, final int pos) {
+        return (data[pos] & 0xFFL)
+                | (data[pos + 1] & 0xFFL) << 8
+                | (data[pos + 2] & 0xFFL) << 16
+                | (data[pos + 3] & 0xFFL) << 24
+                | (data[pos + 4] & 0xFFL) << 32
+                | (data[pos + 5] & 0xFFL) << 40
+                | (data[pos + 6] & 0xFFL) << 48
+                | (data[pos + 7] & 0xFFL) << 56;
+    }
+
+    static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the position in the document of the i-th structural character
+     */
+    int position(final int i) {
+        return positions[i];
+    }
+
+    /**
+     * @return for an opening bracket, the index of the matching closing one
+     */
+    int match(final int i) {
+        return matches[i];
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A JSON array read as a list on demand. The first access records where every
+ * element starts, skipping over the elements without decoding them. An element
+ * is parsed when it is first read and then kept.
+ */
+final class LazyJsonList extends AbstractList<Object> implements RandomAccess {
+
+    private static final int[] NOT_INDEXED = new int[0];
+
+    private final LazyJsonListObjectInspector oi;
+    private final byte[] data;
+    private final int start;
+    private final int end;
+
+    /**
+     * Start of every element, or -1 for a null or already loaded null element.
+     */
+    private int[] starts = NOT_INDEXED;
+    private Object[] values;
+    private int size = -1;
+
+    LazyJsonList(LazyJsonListObjectInspector oi, byte[] data, int start, int end) {
+        this.oi = oi;
+        this.data = data;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            index();
+        }
+        return size;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Object value = values[index];
+        if (value == null && starts[index] >= 0) {
+            try {
+                value = oi.reader.readLazy(oi.elementOI, oi.elementReader, data, starts[index], end);
+            } catch (IOException | SerDeException e) {
+                throw parseError(e);
+            }
+            values[index] = value;
+            if (value == null) {
+                starts[index] = -1;
+            }
+        }
+        return value;
+    }
+
+    private void index() {
+        int[] positions = new int[8];
+        int count = 0;
+        try (JsonParser parser = oi.reader.createParser(data, start, end - start)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new SerDeException("Expected a JSON array: " + parser.currentToken());
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = token == JsonToken.VALUE_NULL
+                        ? -1 : start + (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+            }
+        } catch (IOException | SerDeException e) {
+            throw parseError(e);
+        }
+        starts = positions;
+        values = new Object[count];
+        size = count;
+    }
+
+    /**
+     * ObjectInspector methods cannot throw checked exceptions, so errors found
+     * while reading a lazy value are rethrown unchecked.
+     */
+    static RuntimeException parseError(Exception e) {
+        return new IllegalArgumentException("Error parsing json: " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+
+/**
+ * ObjectInspector of the {@link LazyJsonList}s returned by
+ * {@link HiveJsonReader#parseLazy}.
+ */
+final class LazyJsonListObjectInspector implements ListObjectInspector {
+
+    final HiveJsonReader reader;
+    final ObjectInspector elementOI;
+
+    /**
+     * The reader of the elements if they are not read lazily, otherwise null.
+     */
+    final HiveJsonReader.ValueReader elementReader;
+
+    LazyJsonListObjectInspector(HiveJsonReader reader, ObjectInspector elementOI,
+                                HiveJsonReader.ValueReader elementReader) {
+        this.reader = reader;
+        this.elementOI = elementOI;
+        this.elementReader = elementReader;
+    }
+
+    @Override
+    public ObjectInspector getListElementObjectInspector() {
+        return elementOI;
+    }
+
+    @Override
+    public Object getListElement(Object data, int index) {
+        if (data == null) {
+            return null;
+        }
+        LazyJsonList list = (LazyJsonList) data;
+        return index < 0 || index >= list.size() ? null : list.get(index);
+    }
+
+    @Override
+    public int getListLength(Object data) {
+        return data == null ? -1 : ((LazyJsonList) data).size();
+    }
+
+    @Override
+    public List<?> getList(Object data) {
+        return (List<?>) data;
+    }
+
+    @Override
+    public String getTypeName() {
+        return "array<" + elementOI.getTypeName() + ">";
+    }
+
+    @Override
+    public Category getCategory() {
+        return Category.LIST;
+    }
+}
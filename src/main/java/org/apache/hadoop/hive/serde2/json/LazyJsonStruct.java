@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A JSON object read as a struct on demand. The first access records where the
+ * value of every field starts, skipping over the values without decoding them.
+ * A field is parsed when it is first read and then kept.
+ */
+final class LazyJsonStruct {
+
+    private final LazyJsonStructObjectInspector oi;
+    private final byte[] data;
+    private final int start;
+    private final int end;
+
+    /**
+     * Start of the value of every field, or -1 for a missing, null or already
+     * loaded null field. Null until the object is indexed.
+     */
+    private int[] starts;
+    private Object[] values;
+
+    LazyJsonStruct(LazyJsonStructObjectInspector oi, byte[] data, int start, int end) {
+        this.oi = oi;
+        this.data = data;
+        this.start = start;
+        this.end = end;
+    }
+
+    Object getField(int index) {
+        if (starts == null) {
+            index();
+        }
+        Object value = values[index];
+        if (value == null && starts[index] >= 0) {
+            try {
+                value = oi.reader.readLazy(oi.getAllStructFieldRefs().get(index).getFieldObjectInspector(),
+                        oi.fieldReaders[index], data, starts[index], end);
+            } catch (IOException | SerDeException e) {
+                throw LazyJsonList.parseError(e);
+            }
+            values[index] = value;
+            if (value == null) {
+                starts[index] = -1;
+            }
+        }
+        return value;
+    }
+
+    List<Object> getFieldsAsList() {
+        List<Object> ret = new ArrayList<>(oi.fieldReaders.length);
+        for (int i = 0; i < oi.fieldReaders.length; i++) {
+            ret.add(getField(i));
+        }
+        return ret;
+    }
+
+    private void index() {
+        int[] positions = new int[oi.fieldReaders.length];
+        Arrays.fill(positions, -1);
+        try (JsonParser parser = oi.reader.createParser(data, start, end - start)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerDeException("Expected a JSON object: " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int fieldIndex = oi.reader.getStructField(oi.resolver, parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (fieldIndex >= 0) {
+                    positions[fieldIndex] = token == JsonToken.VALUE_NULL
+                            ? -1 : start + (int) parser.getTokenLocation().getByteOffset();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException | SerDeException e) {
+            throw LazyJsonList.parseError(e);
+        }
+        starts = positions;
+        values = new Object[positions.length];
+    }
+
+    @Override
+    public String toString() {
+        return getFieldsAsList().toString();
+    }
+}
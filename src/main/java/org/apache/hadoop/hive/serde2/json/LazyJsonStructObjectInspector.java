@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.BaseStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+
+/**
+ * ObjectInspector of the {@link LazyJsonStruct}s returned by
+ * {@link HiveJsonReader#parseLazy}. Nested structs and arrays are inspected by
+ * lazy ObjectInspectors as well; other fields keep the ObjectInspector of the
+ * reader's type.
+ */
+final class LazyJsonStructObjectInspector extends BaseStructObjectInspector {
+
+    final HiveJsonReader reader;
+    final StructFieldResolver resolver;
+
+    /**
+     * The readers of the fields that are not read lazily, null for the others.
+     */
+    final HiveJsonReader.ValueReader[] fieldReaders;
+
+    LazyJsonStructObjectInspector(HiveJsonReader reader, StructFieldResolver resolver,
+                                  List<String> names, List<ObjectInspector> fieldOIs,
+                                  HiveJsonReader.ValueReader[] fieldReaders) {
+        super(names, fieldOIs);
+        this.reader = reader;
+        this.resolver = resolver;
+        this.fieldReaders = fieldReaders;
+    }
+
+    @Override
+    public Object getStructFieldData(Object data, StructField fieldRef) {
+        if (data == null) {
+            return null;
+        }
+        return ((LazyJsonStruct) data).getField(((MyField) fieldRef).getFieldID());
+    }
+
+    @Override
+    public List<Object> getStructFieldsDataAsList(Object data) {
+        if (data == null) {
+            return null;
+        }
+        return ((LazyJsonStruct) data).getFieldsAsList();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.hive.serde2.json;
+
+import java.util.List;
+
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+/**
+ * Maps JSON field names to the fields of one struct type.
+ * <p>
+ * The declared field names are loaded into an open addressing table when the
+ * resolver is created. Names are interned, like the field names Jackson hands
+ * out, so a lookup usually ends with a reference comparison. Other spellings
+ * that resolve to a field (different case, column index names) and names that
+ * resolve to no field are remembered as well, but only up to
+ * {@link #MAX_DISCOVERED_NAMES} of them. Documents with dynamic keys therefore
+ * cannot grow the table without limit; names beyond the limit are resolved the
+ * slow way on every occurrence.
+ */
+final class StructFieldResolver {
+
+    /**
+     * Returned by {@link #lookup(String)} for a name that is known to match no
+     * field.
+     */
+    static final int UNKNOWN = -1;
+
+    /**
+     * Returned by {@link #lookup(String)} for a name that is not in the table.
+     */
+    static final int NOT_FOUND = -2;
+
+    static final int MAX_DISCOVERED_NAMES = 1024;
+
+    private final StructObjectInspector oi;
+    private final List<? extends StructField> fields;
+
+    private String[] names;
+    private int[] indexes;
+    private int mask;
+    private int size;
+    private int discovered;
+
+    StructFieldResolver(StructObjectInspector oi) {
+        this.oi = oi;
+        this.fields = oi.getAllStructFieldRefs();
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(fields.size(), 1) * 4)));
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).getFieldName().intern();
+            if (lookup(name) == NOT_FOUND) {
+                insert(name, i);
+            }
+        }
+    }
+
+    StructObjectInspector getObjectInspector() {
+        return oi;
+    }
+
+    List<? extends StructField> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the index of the field in {@link #getFields()}, {@link #UNKNOWN}
+     *         or {@link #NOT_FOUND}
+     */
+    int lookup(String name) {
+        int slot = mix(name.hashCode()) & mask;
+        String candidate;
+        while ((candidate = names[slot]) != null) {
+            if (candidate == name || candidate.equals(name)) {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Remembers how a name outside of the declared field names resolved.
+     *
+     * @param name The JSON field name
+     * @param index The index of the field or {@link #UNKNOWN}
+     * @return false if the name was not remembered because the limit was reached
+     */
+    boolean remember(String name, int index) {
+        if (discovered >= MAX_DISCOVERED_NAMES) {
+            return false;
+        }
+        discovered++;
+        if ((size + 1) * 2 > names.length) {
+            String[] oldNames = names;
+            int[] oldIndexes = indexes;
+            allocate(names.length * 2);
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    insert(oldNames[i], oldIndexes[i]);
+                }
+            }
+        }
+        insert(name, index);
+        return true;
+    }
+
+    private void allocate(int capacity) {
+        names = new String[capacity];
+        indexes = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void insert(String name, int index) {
+        int slot = mix(name.hashCode()) & mask;
+        while (names[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        indexes[slot] = index;
+        size++;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.exec.vector.expressions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedBatchUtil;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.junit.Test;
+
+public class TestVectorUDFJsonRead {
+
+    private static final String TYPE = "struct<a:bigint,b:string,c:array<int>,d:map<string,double>,t:timestamp>";
+
+    @Test
+    public void testEvaluate() throws Exception {
+        VectorizedRowBatch batch = batch(TYPE,
+                "{\"a\":1,\"b\":\"x\",\"c\":[1,2],\"d\":{\"k\":1.5},\"t\":\"2020-01-02 03:04:05.5\"}",
+                null,
+                "  ",
+                "{\"b\":2,\"c\":[3],\"a\":\"7\"}");
+        new VectorUDFJsonRead(0, bytes(TYPE), 1).evaluate(batch);
+
+        StructColumnVector out = (StructColumnVector) batch.cols[1];
+        LongColumnVector a = (LongColumnVector) out.fields[0];
+        BytesColumnVector b = (BytesColumnVector) out.fields[1];
+        ListColumnVector c = (ListColumnVector) out.fields[2];
+        MapColumnVector d = (MapColumnVector) out.fields[3];
+        TimestampColumnVector t = (TimestampColumnVector) out.fields[4];
+
+        assertFalse(out.isNull[0]);
+        assertEquals(1, a.vector[0]);
+        assertEquals("x", string(b, 0));
+        assertEquals(2, c.lengths[0]);
+        assertEquals(1, ((LongColumnVector) c.child).vector[(int) c.offsets[0]]);
+        assertEquals(2, ((LongColumnVector) c.child).vector[(int) c.offsets[0] + 1]);
+        assertEquals(1, d.lengths[0]);
+        assertEquals("k", string((BytesColumnVector) d.keys, (int) d.offsets[0]));
+        assertEquals(1.5, ((DoubleColumnVector) d.values).vector[(int) d.offsets[0]], 0.0);
+        assertEquals(Timestamp.valueOf("2020-01-02 03:04:05.5"), t.asScratchTimestamp(0));
+
+        assertTrue(out.isNull[1]);
+        assertTrue(out.isNull[2]);
+
+        assertFalse(out.isNull[3]);
+        assertEquals(7, a.vector[3]);
+        assertEquals("2", string(b, 3));
+        assertEquals(1, c.lengths[3]);
+        assertEquals(3, ((LongColumnVector) c.child).vector[(int) c.offsets[3]]);
+        assertTrue(d.isNull[3]);
+        assertTrue(t.isNull[3]);
+    }
+
+    @Test
+    public void testRepeatingAndSelected() throws Exception {
+        VectorizedRowBatch batch = batch("array<bigint>", "[1,2,3]", "[4]", "[5,6]");
+        BytesColumnVector in = (BytesColumnVector) batch.cols[0];
+        VectorUDFJsonRead expr = new VectorUDFJsonRead(0, bytes("array<bigint>"), 1);
+
+        in.isRepeating = true;
+        expr.evaluate(batch);
+        ListColumnVector out = (ListColumnVector) batch.cols[1];
+        assertTrue(out.isRepeating);
+        assertEquals(3, out.lengths[0]);
+        assertEquals(3, ((LongColumnVector) out.child).vector[(int) out.offsets[0] + 2]);
+
+        in.isRepeating = false;
+        batch.selectedInUse = true;
+        batch.selected[0] = 2;
+        batch.size = 1;
+        expr.evaluate(batch);
+        assertFalse(out.isRepeating);
+        assertEquals(2, out.lengths[2]);
+        assertEquals(6, ((LongColumnVector) out.child).vector[(int) out.offsets[2] + 1]);
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        VectorizedRowBatch batch = batch("struct<a:int>", "{\"a\":1,\"x\":2}", "{\"a\":", "{\"a\":[]}");
+        VectorUDFJsonRead expr = new VectorUDFJsonReadOptions(0, bytes("struct<a:int>"),
+                bytes("ignore_unknown_fields, null_on_error"), 1);
+        expr.evaluate(batch);
+
+        StructColumnVector out = (StructColumnVector) batch.cols[1];
+        assertEquals(1, ((LongColumnVector) out.fields[0]).vector[0]);
+        assertFalse(out.isNull[0]);
+        assertTrue(out.isNull[1]);
+        assertTrue(out.isNull[2]);
+        assertEquals(2, expr.getErrorCount());
+    }
+
+    @Test
+    public void testNotJson() throws Exception {
+        VectorizedRowBatch batch = batch("struct<a:int>", "{\"a\":1}", "N/A", "<html>", "{\"a\":4}");
+        VectorUDFJsonRead expr = new VectorUDFJsonReadOptions(0, bytes("struct<a:int>"),
+                bytes("null_on_error"), 1);
+        expr.evaluate(batch);
+
+        StructColumnVector out = (StructColumnVector) batch.cols[1];
+        assertFalse(out.noNulls);
+        assertFalse(out.isNull[0]);
+        assertTrue(out.isNull[1]);
+        assertTrue(out.isNull[2]);
+        assertFalse(out.isNull[3]);
+        assertEquals(1, ((LongColumnVector) out.fields[0]).vector[0]);
+        assertEquals(4, ((LongColumnVector) out.fields[0]).vector[3]);
+        assertEquals(2, expr.getErrorCount());
+    }
+
+    @Test(expected = HiveException.class)
+    public void testMalformed() throws Exception {
+        VectorizedRowBatch batch = batch("struct<a:int>", "{\"a\":");
+        new VectorUDFJsonRead(0, bytes("struct<a:int>"), 1).evaluate(batch);
+    }
+
+    @Test(expected = HiveException.class)
+    public void testUnknownOption() throws Exception {
+        VectorizedRowBatch batch = batch("struct<a:int>", "{}");
+        new VectorUDFJsonReadOptions(0, bytes("struct<a:int>"), bytes("strict"), 1).evaluate(batch);
+    }
+
+    private static VectorizedRowBatch batch(String type, String... rows) throws HiveException {
+        VectorizedRowBatch batch = new VectorizedRowBatch(2);
+        BytesColumnVector in = new BytesColumnVector();
+        in.initBuffer();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == null) {
+                in.isNull[i] = true;
+                in.noNulls = false;
+            } else {
+                in.setVal(i, bytes(rows[i]));
+            }
+        }
+        batch.cols[0] = in;
+        batch.cols[1] = VectorizedBatchUtil.createColumnVector(type);
+        batch.size = rows.length;
+        return batch;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(BytesColumnVector v, int i) {
+        return new String(v.vector[i], v.start[i], v.length[i], StandardCharsets.UTF_8);
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectIn
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -103,6 +104,23 @@ public class TestAbstractGenericUDFArrayBase {
         }
     }
 
+    @Test
+    public void testStringArray() throws HiveException {
+        initUdf(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        Object i1 = new Text("b");
+        Object i2 = new Text("ab");
+        Object i3 = new Text("c");
+
+        if (udf instanceof GenericUDFArrayMax) {
+            runAndVerify(asList(null, i1, i2, i3, null), i3);
+            runAndVerify(asList(null, null), null);
+        }
+        if (udf instanceof GenericUDFArrayMin) {
+            runAndVerify(asList(null, i1, i2, i3, null), i2);
+            runAndVerify(asList(null, null), null);
+        }
+    }
+
     private void initUdf(AbstractPrimitiveWritableObjectInspector writableIntObjectInspector) throws UDFArgumentException {
         ObjectInspector[] inputOIs = {
                 ObjectInspectorFactory.getStandardListObjectInspector(writableIntObjectInspector)
@@ -19,6 +19,7 @@
 package org.apache.hadoop.hive.ql.udf.generic;
 
 import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.serde2.io.DateWritableV2;
 import org.apache.hadoop.hive.serde2.io.DoubleWritable;
@@ -27,10 +28,14 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
@@ -52,6 +57,8 @@ public class TestGenericUDFArrayDistinct extends TestGenericUDFArray {
         Object i4 = new IntWritable(1);
         runAndVerify(asList(i1, i2, i3, i4), asList(i1, i2, i3));
 
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableFloatObjectInspector) });
         i1 = new FloatWritable(3.3f);
         i2 = new FloatWritable(1.1f);
         i3 = new FloatWritable(3.3f);
@@ -59,6 +66,70 @@ public class TestGenericUDFArrayDistinct extends TestGenericUDFArray {
         runAndVerify(asList(i1, i2, i3, i4), asList(i1, i2, i4));
     }
 
+    @Test public void testLongAndString() throws HiveException {
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableLongObjectInspector) });
+        Object l1 = new LongWritable(331234567890L);
+        Object l2 = new LongWritable(-1L);
+        runAndVerify(asList(l1, null, l2, new LongWritable(-1L), null, new LongWritable(331234567890L)),
+                asList(l1, null, l2));
+        // the kernel's table is reused for the next row
+        runAndVerify(asList(l2, l2), asList(l2));
+
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector) });
+        Object s1 = new Text("b");
+        Object s2 = new Text("d");
+        Object s3 = new Text("a");
+        runAndVerify(asList(s1, s2, new Text("d"), s3, new Text("b")), asList(s1, s2, s3));
+    }
+
+    @Test public void testDoubleEquality() throws HiveException {
+        // like DoubleWritable#equals, every NaN is a new value and -0.0 equals 0.0
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableDoubleObjectInspector) });
+        Object nan1 = new DoubleWritable(Double.NaN);
+        Object nan2 = new DoubleWritable(Double.NaN);
+        Object zero = new DoubleWritable(0.0);
+        verifySame(asList(nan1, zero, nan2, new DoubleWritable(-0.0), nan1), asList(nan1, zero, nan2, nan1));
+
+        // like Double#equals, all NaNs are one value and -0.0 differs from 0.0
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.javaDoubleObjectInspector) });
+        runAndVerify(asList(Double.NaN, 0.0, Double.NaN, -0.0, 0.0), asList(Double.NaN, 0.0, -0.0));
+    }
+
+    private void verifySame(List<Object> actual, List<Object> expected) throws HiveException {
+        List<?> result = (List<?>) udf.evaluate(new GenericUDF.DeferredJavaObject[] {
+                new GenericUDF.DeferredJavaObject(actual) });
+        Assert.assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertSame(expected.get(i), result.get(i));
+        }
+    }
+
+    @Test public void testReuseOutput() throws HiveException {
+        JobConf conf = new JobConf();
+        conf.setBoolean(AbstractGenericUDFArrayBase.REUSE_OUTPUT, true);
+        try {
+            udf.configure(MapredContext.init(true, conf));
+        } finally {
+            MapredContext.close();
+        }
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableIntObjectInspector) });
+
+        Object i1 = new IntWritable(3);
+        Object i2 = new IntWritable(1);
+        Object first = udf.evaluate(new GenericUDF.DeferredJavaObject[] {
+                new GenericUDF.DeferredJavaObject(asList(i1, i2, i1)) });
+        Assert.assertEquals(asList(i1, i2), first);
+        Object second = udf.evaluate(new GenericUDF.DeferredJavaObject[] {
+                new GenericUDF.DeferredJavaObject(asList(i2, i2)) });
+        Assert.assertSame(first, second);
+        Assert.assertEquals(asList(i2), second);
+    }
+
     @Test public void testList() throws HiveException {
         ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
                 ObjectInspectorFactory.getStandardListObjectInspector(
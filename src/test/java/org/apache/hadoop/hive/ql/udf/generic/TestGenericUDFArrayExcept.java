@@ -117,6 +117,41 @@ public class TestGenericUDFArrayExcept {
         Assert.assertEquals(GenericUDFArrayExcept.ERROR_NOT_COMPARABLE,exception.getMessage());
     }
 
+    @Test
+    public void testBlocklist() throws HiveException {
+        ObjectInspector stringObjectInspector = ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        udf.initialize(new ObjectInspector[] { stringObjectInspector, stringObjectInspector });
+
+        List<Object> blocklist = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            blocklist.add(new Text("id" + i));
+        }
+        Object s1 = new Text("id29999");
+        Object s2 = new Text("user1");
+        Object s3 = new Text("user2");
+        runAndVerify(asList(s1, s2, null, s3, new Text("user1"), new Text("id0")), blocklist, asList(s2, null, s3));
+        // the probe table is reused for the next, smaller row
+        runAndVerify(asList(s2, s3), asList(new Text("user2")), asList(s2));
+        runAndVerify(asList(s2, null), asList((Object) null), asList(s2));
+    }
+
+    @Test public void testConstantArray2() throws HiveException {
+        List<Object> constant = asList(new Text("spam"), new Text("test"), new Text("spam"));
+        ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector),
+                ObjectInspectorFactory.getStandardConstantListObjectInspector(
+                        PrimitiveObjectInspectorFactory.writableStringObjectInspector, constant) };
+        udf.initialize(inputOIs);
+
+        Object s1 = new Text("a");
+        Object s2 = new Text("test");
+        Object s3 = new Text("b");
+        runAndVerify(asList(s1, s2, s3, new Text("a")), constant, asList(s1, s3));
+        runAndVerify(asList(new Text("spam"), s2), constant, asList());
+        runAndVerify(asList(s3, null, s3), constant, asList(s3, null));
+    }
+
     @Test
     public void testList() throws HiveException {
         ObjectInspector[] inputOIs = {
@@ -28,6 +28,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.junit.Assert;
 import org.junit.Test;
@@ -42,6 +43,20 @@ import static java.util.Arrays.asList;
 public class TestGenericUDFArrayIntersect {
     private final GenericUDFArrayIntersect udf = new GenericUDFArrayIntersect();
 
+    @Test
+    public void testDoubleNaN() throws HiveException {
+        ObjectInspector doubleObjectInspector = ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableDoubleObjectInspector);
+        udf.initialize(new ObjectInspector[] { doubleObjectInspector, doubleObjectInspector });
+        Object one = new DoubleWritable(1.0);
+        Object zero = new DoubleWritable(0.0);
+        // NaN equals nothing, not even NaN, so it is never in the intersection
+        runAndVerify(asList(new DoubleWritable(Double.NaN), one, zero), asList(new DoubleWritable(Double.NaN),
+                new DoubleWritable(-0.0)), asList(zero));
+        runAndVerify(asList(new DoubleWritable(Double.NaN), one), asList(new DoubleWritable(Double.NaN), one,
+                new DoubleWritable(2.0)), asList(one));
+    }
+
     @Test
     public void testPrimitive() throws HiveException {
         ObjectInspector intObjectInspector = ObjectInspectorFactory.getStandardListObjectInspector(
@@ -117,6 +132,51 @@ public class TestGenericUDFArrayIntersect {
         Assert.assertEquals(GenericUDFArrayIntersect.ERROR_NOT_COMPARABLE,exception.getMessage());
     }
 
+    @Test public void testLong() throws HiveException {
+        ObjectInspector longObjectInspector = ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableLongObjectInspector);
+        udf.initialize(new ObjectInspector[] { longObjectInspector, longObjectInspector });
+
+        Object l1 = new LongWritable(7L);
+        Object l2 = new LongWritable(3L);
+        Object l3 = new LongWritable(5L);
+        // array2 is hashed
+        runAndVerify(asList(l1, l2, null, l2, l3, l1), asList(new LongWritable(3L), null, new LongWritable(7L)),
+                asList(l1, l2, null));
+        // array1 is hashed, the result still follows array1
+        runAndVerify(asList(l3, l2, l3), asList(l1, new LongWritable(3L), new LongWritable(5L), l1, l2),
+                asList(l3, l2));
+
+        List<Object> large1 = new ArrayList<>();
+        List<Object> large2 = new ArrayList<>();
+        List<Object> expected = new ArrayList<>();
+        for (long i = 0; i < 20000; i++) {
+            large1.add(new LongWritable(i));
+            large2.add(new LongWritable(i * 3));
+            if (i % 3 == 0) {
+                expected.add(new LongWritable(i));
+            }
+        }
+        runAndVerify(large1, large2, expected);
+        runAndVerify(large1, large2.subList(0, 10), expected.subList(0, 10));
+    }
+
+    @Test public void testConstantArray2() throws HiveException {
+        List<Object> constant = asList(new Text("spam"), new Text("test"), new Text("spam"));
+        ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector),
+                ObjectInspectorFactory.getStandardConstantListObjectInspector(
+                        PrimitiveObjectInspectorFactory.writableStringObjectInspector, constant) };
+        udf.initialize(inputOIs);
+
+        Object s1 = new Text("a");
+        Object s2 = new Text("test");
+        Object s3 = new Text("b");
+        runAndVerify(asList(s1, s2, s3, new Text("test")), constant, asList(s2));
+        runAndVerify(asList(s1, s3), constant, asList());
+        runAndVerify(asList(new Text("spam"), s2), constant, asList(new Text("spam"), s2));
+    }
+
     @Test public void testList() throws HiveException {
         ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
                 ObjectInspectorFactory.getStandardListObjectInspector(
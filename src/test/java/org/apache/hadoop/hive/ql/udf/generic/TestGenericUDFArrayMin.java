@@ -18,8 +18,44 @@
 
 package org.apache.hadoop.hive.ql.udf.generic;
 
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
 public class TestGenericUDFArrayMin extends TestAbstractGenericUDFArrayBase {
     public TestGenericUDFArrayMin() {
         super.udf = new GenericUDFArrayMin();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDoubleOrder() throws HiveException {
+        udf.initialize(new ObjectInspector[] { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableDoubleObjectInspector) });
+        Object nan = new DoubleWritable(Double.NaN);
+        Object three = new DoubleWritable(3.0);
+        Object zero = new DoubleWritable(0.0);
+        Object minusZero = new DoubleWritable(-0.0);
+        Object minusOne = new DoubleWritable(-1.0);
+
+        // NaN is larger than every other value, wherever it is in the array
+        runAndVerifySame(asList(nan, three), three);
+        runAndVerifySame(asList(nan, null), nan);
+        // -0.0 is smaller than 0.0 and ties keep the first element
+        runAndVerifySame(asList(new DoubleWritable(1.0), zero, three, minusZero, new DoubleWritable(-0.0)), minusZero);
+        runAndVerifySame(asList(zero, minusOne, new DoubleWritable(-1.0)), minusOne);
+    }
+
+    private void runAndVerifySame(List<Object> actual, Object expected) throws HiveException {
+        GenericUDF.DeferredJavaObject[] args = {new GenericUDF.DeferredJavaObject(actual)};
+        // DoubleWritable#equals cannot tell NaN or -0.0 apart, the element itself is returned
+        Assert.assertSame(expected, udf.evaluate(args));
+    }
+}
@@ -131,6 +131,26 @@ public class TestGenericUDFArraySlice {
         runAndVerify(asList(m1, m3, m2, m3, m1), 2, 1, asList(m2));
     }
 
+    @Test public void testIdentityConversion() throws HiveException {
+        ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector),
+                PrimitiveObjectInspectorFactory.writableIntObjectInspector,
+                PrimitiveObjectInspectorFactory.writableIntObjectInspector };
+        udf.initialize(inputOIs);
+        Assert.assertTrue(udf.identityConversion);
+
+        Object s1 = new Text("a");
+        Object s2 = new Text("b");
+        Object s3 = new Text("c");
+        GenericUDF.DeferredJavaObject[] args = { new GenericUDF.DeferredJavaObject(asList(s1, s2, s3)),
+                new GenericUDF.DeferredJavaObject(new IntWritable(1)),
+                new GenericUDF.DeferredJavaObject(new IntWritable(2)) };
+        List<?> result = (List<?>) udf.evaluate(args);
+        Assert.assertEquals(2, result.size());
+        Assert.assertSame(s2, result.get(0));
+        Assert.assertSame(s3, result.get(1));
+    }
+
     private void runAndVerify(List<Object> actual, Integer start, Integer length, List<Object> expected)
             throws HiveException {
         GenericUDF.DeferredJavaObject[] args = { new GenericUDF.DeferredJavaObject(actual),
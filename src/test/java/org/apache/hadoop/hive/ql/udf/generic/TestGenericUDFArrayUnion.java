@@ -117,6 +117,22 @@ public class TestGenericUDFArrayUnion {
         Assert.assertEquals(GenericUDFArrayUnion.ERROR_NOT_COMPARABLE,exception.getMessage());
     }
 
+    @Test public void testConstantArray2() throws HiveException {
+        List<Object> constant = asList(new Text("spam"), new Text("test"), new Text("spam"));
+        ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector),
+                ObjectInspectorFactory.getStandardConstantListObjectInspector(
+                        PrimitiveObjectInspectorFactory.writableStringObjectInspector, constant) };
+        udf.initialize(inputOIs);
+
+        Object s1 = new Text("a");
+        Object s2 = new Text("test");
+        Object s3 = new Text("b");
+        runAndVerify(asList(s1, s2, s3, new Text("a")), constant, asList(s1, s2, s3, new Text("spam")));
+        runAndVerify(asList(), constant, asList(new Text("spam"), new Text("test")));
+        runAndVerify(asList(s3, null), constant, asList(s3, null, new Text("spam"), new Text("test")));
+    }
+
     @Test public void testList() throws HiveException {
         ObjectInspector[] inputOIs = { ObjectInspectorFactory.getStandardListObjectInspector(
                 ObjectInspectorFactory.getStandardListObjectInspector(
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TestGenericUDFJsonExtractStruct {
+
+    @Test
+    public void testExtract() throws Exception {
+        try (GenericUDFJsonExtractStruct udf = new GenericUDFJsonExtractStruct()) {
+            ObjectInspector oi = udf.initialize(buildArguments(
+                    "user.id:bigint", "$.user.name:string", "tags:array<string>", "n:int"));
+            assertEquals("struct<user_id:bigint,user_name:string,tags:array<string>,n:int>", oi.getTypeName());
+
+            Object res = udf.evaluate(evalArgs(
+                    "{\"x\":{\"y\":[1,2]},\"user\":{\"Name\":\"a\",\"id\":1,\"z\":{}},\"tags\":[\"t\"],\"n\":\"3\"}"));
+            assertEquals(Arrays.asList(new LongWritable(1), new Text("a"), Arrays.asList(new Text("t")),
+                    new IntWritable(3)), res);
+
+            res = udf.evaluate(evalArgs("{\"user\":null,\"n\":2}"));
+            assertEquals(Arrays.asList(null, null, null, new IntWritable(2)), res);
+
+            assertNull(udf.evaluate(evalArgs("  ")));
+            assertNull(udf.evaluate(new DeferredObject[] { new DeferredJavaObject(null) }));
+        }
+    }
+
+    @Test(expected = HiveException.class)
+    public void testMalformed() throws Exception {
+        try (GenericUDFJsonExtractStruct udf = new GenericUDFJsonExtractStruct()) {
+            udf.initialize(buildArguments("a:int"));
+            udf.evaluate(evalArgs("{\"a\":"));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testConflictingPaths() throws Exception {
+        try (GenericUDFJsonExtractStruct udf = new GenericUDFJsonExtractStruct()) {
+            udf.initialize(buildArguments("a:string", "a.b:int"));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testDuplicateFieldNames() throws Exception {
+        try (GenericUDFJsonExtractStruct udf = new GenericUDFJsonExtractStruct()) {
+            udf.initialize(buildArguments("a.b:int", "a_b:int"));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testMissingType() throws Exception {
+        try (GenericUDFJsonExtractStruct udf = new GenericUDFJsonExtractStruct()) {
+            udf.initialize(buildArguments("a.b"));
+        }
+    }
+
+    private DeferredObject[] evalArgs(String string) {
+        return new DeferredObject[] { new DeferredJavaObject(new Text(string)) };
+    }
+
+    private ObjectInspector[] buildArguments(String... specs) {
+        ObjectInspector[] arguments = new ObjectInspector[specs.length + 1];
+        arguments[0] = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+        for (int i = 0; i < specs.length; i++) {
+            arguments[i + 1] = PrimitiveObjectInspectorFactory
+                    .getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.stringTypeInfo, new Text(specs[i]));
+        }
+        return arguments;
+    }
+}
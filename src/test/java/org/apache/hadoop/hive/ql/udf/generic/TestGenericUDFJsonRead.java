@@ -19,19 +19,29 @@ package org.apache.hadoop.hive.ql.udf.generic;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.hive.ql.exec.MapredContext;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
 import org.junit.Test;
 
 public class TestGenericUDFJsonRead {
@@ -127,6 +137,58 @@ public class TestGenericUDFJsonRead {
         }
     }
 
+    @Test
+    public void testStructWhitespace() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            ObjectInspector[] arguments = buildArguments("struct<a:string>");
+            udf.initialize(arguments);
+
+            assertNull(udf.evaluate(evalArgs(" \t\r\n ")));
+        }
+    }
+
+    @Test
+    public void testReusedText() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            ObjectInspector[] arguments = buildArguments("struct<a:string>");
+            udf.initialize(arguments);
+
+            // the backing array keeps stale bytes past the length
+            Text text = new Text("{\"a\":\"long value\"}   ");
+            text.set("{\"a\":\"한\"}");
+            List<?> o = (List<?>) udf.evaluate(new DeferredObject[] { new DeferredJavaObject(text), null });
+            assertEquals(new Text("한"), o.get(0));
+
+            text.set("  ");
+            assertNull(udf.evaluate(new DeferredObject[] { new DeferredJavaObject(text), null }));
+        }
+    }
+
+    @Test
+    public void testBinaryInput() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            ObjectInspector[] arguments = buildArguments("struct<a:string>");
+            arguments[0] = PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+            udf.initialize(arguments);
+
+            BytesWritable bytes = new BytesWritable("{\"a\":\"b\"}".getBytes(StandardCharsets.UTF_8));
+            List<?> o = (List<?>) udf.evaluate(new DeferredObject[] { new DeferredJavaObject(bytes), null });
+            assertEquals(new Text("b"), o.get(0));
+        }
+    }
+
+    @Test
+    public void testJavaStringInput() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            ObjectInspector[] arguments = buildArguments("struct<a:string>");
+            arguments[0] = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+            udf.initialize(arguments);
+
+            List<?> o = (List<?>) udf.evaluate(new DeferredObject[] { new DeferredJavaObject("{\"a\":\"b\"}"), null });
+            assertEquals(new Text("b"), o.get(0));
+        }
+    }
+
     @Test
     public void testStructNull() throws Exception {
         try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
@@ -174,6 +236,164 @@ public class TestGenericUDFJsonRead {
         }
     }
 
+    @Test
+    public void testIgnoreUnknownFields() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            ObjectInspector[] arguments = buildArguments("struct<a:int,c:struct<x:string>>",
+                    GenericUDFJsonRead.IGNORE_UNKNOWN_FIELDS);
+            udf.initialize(arguments);
+
+            Object res = udf.evaluate(evalArgs(
+                    "{\"b\":{\"a\":[1,{\"c\":2}]},\"c\":{\"y\":\"z\",\"x\":\"w\"},\"d\":\"e\",\"a\":7}"));
+            List<?> o = (List<?>) res;
+            assertEquals(new IntWritable(7), o.get(0));
+            assertEquals(Arrays.asList(new Text("w")), o.get(1));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testUnknownOption() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            udf.initialize(buildArguments("struct<a:int>", "__invalid__option__"));
+        }
+    }
+
+    @Test
+    public void testReuseOutput() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            JobConf conf = new JobConf();
+            conf.setBoolean(GenericUDFJsonRead.REUSE_OUTPUT, true);
+            try {
+                udf.configure(MapredContext.init(true, conf));
+            } finally {
+                MapredContext.close();
+            }
+            udf.initialize(buildArguments("struct<a:int,b:array<string>>"));
+
+            List<?> first = (List<?>) udf.evaluate(evalArgs("{\"a\":1,\"b\":[\"x\",\"y\"]}"));
+            Object a = first.get(0);
+            assertEquals(Arrays.asList(new IntWritable(1), Arrays.asList(new Text("x"), new Text("y"))), first);
+
+            List<?> second = (List<?>) udf.evaluate(evalArgs("{\"b\":[\"z\"]}"));
+            assertSame(first, second);
+            assertEquals(Arrays.asList(null, Arrays.asList(new Text("z"))), second);
+
+            List<?> third = (List<?>) udf.evaluate(evalArgs("{\"a\":3}"));
+            assertSame(first, third);
+            assertSame(a, third.get(0));
+            assertEquals(Arrays.asList(new IntWritable(3), null), third);
+        }
+    }
+
+    @Test
+    public void testCacheNullResults() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            JobConf conf = new JobConf();
+            conf.setInt(GenericUDFJsonRead.CACHE_ENTRIES, 4);
+            udf.initialize(buildArguments("struct<a:int>", "null_on_error"));
+            try {
+                udf.configure(MapredContext.init(true, conf));
+            } finally {
+                MapredContext.close();
+            }
+
+            // a repeated bad row is served from the cache and still counted as malformed
+            assertNull(udf.evaluate(evalArgs("N/A")));
+            assertNull(udf.evaluate(evalArgs("N/A")));
+            assertNull(udf.evaluate(evalArgs("null")));
+            assertNull(udf.evaluate(evalArgs("null")));
+            assertEquals(Arrays.asList(new IntWritable(1)), udf.evaluate(evalArgs("{\"a\":1}")));
+            assertEquals(2, udf.getCacheHits());
+            assertEquals(3, udf.getCacheMisses());
+            assertEquals(2, udf.getMalformedRows());
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            JobConf conf = new JobConf();
+            conf.setInt(GenericUDFJsonRead.CACHE_ENTRIES, 2);
+            conf.setBoolean(GenericUDFJsonRead.REUSE_OUTPUT, true);
+            udf.initialize(buildArguments("struct<a:int>"));
+            try {
+                udf.configure(MapredContext.init(true, conf));
+            } finally {
+                MapredContext.close();
+            }
+
+            Object one = udf.evaluate(evalArgs("{\"a\":1}"));
+            Object two = udf.evaluate(evalArgs("{\"a\":2}"));
+            assertSame(one, udf.evaluate(evalArgs("{\"a\":1}")));
+            assertEquals(Arrays.asList(new IntWritable(1)), one);
+            assertEquals(Arrays.asList(new IntWritable(2)), two);
+            assertEquals(1, udf.getCacheHits());
+            assertEquals(2, udf.getCacheMisses());
+
+            // {"a":2} is the least recently used entry
+            udf.evaluate(evalArgs("{\"a\":3}"));
+            assertSame(one, udf.evaluate(evalArgs("{\"a\":1}")));
+            Object again = udf.evaluate(evalArgs("{\"a\":2}"));
+            assertEquals(two, again);
+            assertTrue(two != again);
+            assertEquals(2, udf.getCacheHits());
+            assertEquals(4, udf.getCacheMisses());
+        }
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            StructObjectInspector oi = (StructObjectInspector) udf.initialize(
+                    buildArguments("struct<a:int,b:array<string>>", "lazy"));
+            assertEquals("struct<a:int,b:array<string>>", oi.getTypeName());
+
+            Object res = udf.evaluate(evalArgs("{\"b\":[\"x\"],\"a\":1}"));
+            assertEquals(new IntWritable(1), oi.getStructFieldData(res, oi.getStructFieldRef("a")));
+            ListObjectInspector loi = (ListObjectInspector) oi.getStructFieldRef("b").getFieldObjectInspector();
+            Object b = oi.getStructFieldData(res, oi.getStructFieldRef("b"));
+            assertEquals(Arrays.asList(new Text("x")), loi.getList(b));
+            assertNull(udf.evaluate(evalArgs(" ")));
+        }
+    }
+
+    @Test
+    public void testNullOnError() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            udf.initialize(buildArguments("struct<a:int>", "null_on_error"));
+
+            assertNull(udf.evaluate(evalArgs("{\"a\":")));
+            assertNull(udf.evaluate(evalArgs("{\"b\":1}")));
+            assertEquals(Arrays.asList(new IntWritable(1)), udf.evaluate(evalArgs("{\"a\":1}")));
+            assertNull(udf.evaluate(evalArgs("")));
+            assertNull(udf.evaluate(evalArgs("N/A")));
+            assertNull(udf.evaluate(evalArgs("<html>")));
+            assertEquals(4, udf.getMalformedRows());
+        }
+    }
+
+    @Test
+    public void testStructuralIndex() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            udf.initialize(buildArguments("struct<a:int>", "ignore_unknown_fields,structural_index"));
+
+            StringBuilder json = new StringBuilder("{\"big\":[");
+            while (json.length() < HiveJsonReader.STRUCTURAL_INDEX_MIN_LENGTH) {
+                json.append("{\"a\":\"[:,\"},");
+            }
+            json.append("{}],\"a\":7}");
+            assertEquals(Arrays.asList(new IntWritable(7)), udf.evaluate(evalArgs(json.toString())));
+            assertEquals(Arrays.asList(new IntWritable(1)), udf.evaluate(evalArgs("{\"a\":1}")));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testLazyNullOnError() throws Exception {
+        try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
+            udf.initialize(buildArguments("struct<a:int>", "lazy,null_on_error"));
+        }
+    }
+
     @Test
     public void testMap() throws Exception {
         try (GenericUDFJsonRead udf = new GenericUDFJsonRead()) {
@@ -199,4 +419,13 @@ public class TestGenericUDFJsonRead {
         return arguments;
     }
 
+    private ObjectInspector[] buildArguments(String typeStr, String options) {
+        ObjectInspector valueOI = PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+        ObjectInspector[] arguments = { valueOI, PrimitiveObjectInspectorFactory
+                .getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.stringTypeInfo, new Text(typeStr)),
+                PrimitiveObjectInspectorFactory
+                .getPrimitiveWritableConstantObjectInspector(TypeInfoFactory.stringTypeInfo, new Text(options)) };
+        return arguments;
+    }
+
 }
\ No newline at end of file
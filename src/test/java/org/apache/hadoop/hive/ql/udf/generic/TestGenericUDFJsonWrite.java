@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredJavaObject;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF.DeferredObject;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TestGenericUDFJsonWrite {
+
+    @Test
+    public void testWrite() throws Exception {
+        try (GenericUDFJsonWrite udf = new GenericUDFJsonWrite()) {
+            ObjectInspector oi = udf.initialize(new ObjectInspector[] {
+                    writableOI("struct<id:bigint,name:string,tags:array<string>,m:map<string,int>>") });
+            assertEquals(PrimitiveObjectInspectorFactory.writableStringObjectInspector, oi);
+
+            Object res = udf.evaluate(evalArgs(Arrays.asList(new LongWritable(1), new Text("é\""),
+                    Arrays.asList(new Text("t"), null), Collections.singletonMap(new Text("k"), new IntWritable(2)))));
+            assertEquals(new Text("{\"id\":1,\"name\":\"é\\\"\",\"tags\":[\"t\",null],\"m\":{\"k\":2}}"), res);
+
+            // the result Text is reused
+            Object next = udf.evaluate(evalArgs(Arrays.asList(new LongWritable(2), null, null, null)));
+            assertSame(res, next);
+            assertEquals(new Text("{\"id\":2,\"name\":null,\"tags\":null,\"m\":null}"), next);
+
+            assertNull(udf.evaluate(new DeferredObject[] { new DeferredJavaObject(null) }));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String type = "struct<a:int,b:array<struct<c:double,d:date>>>";
+        try (GenericUDFJsonRead read = new GenericUDFJsonRead(); GenericUDFJsonWrite write = new GenericUDFJsonWrite()) {
+            ObjectInspector readOI = read.initialize(new ObjectInspector[] {
+                    PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                    PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                            TypeInfoFactory.stringTypeInfo, new Text(type)) });
+            write.initialize(new ObjectInspector[] { readOI });
+
+            String json = "{\"a\":1,\"b\":[{\"c\":0.5,\"d\":\"2020-01-02\"},null]}";
+            Object row = read.evaluate(evalArgs(new Text(json)));
+            assertEquals(new Text(json), write.evaluate(evalArgs(row)));
+        }
+    }
+
+    @Test(expected = UDFArgumentException.class)
+    public void testArguments() throws Exception {
+        try (GenericUDFJsonWrite udf = new GenericUDFJsonWrite()) {
+            udf.initialize(new ObjectInspector[] { writableOI("int"), writableOI("int") });
+        }
+    }
+
+    private static ObjectInspector writableOI(String type) {
+        return TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString(type));
+    }
+
+    private static DeferredObject[] evalArgs(Object value) {
+        return new DeferredObject[] { new DeferredJavaObject(value) };
+    }
+}
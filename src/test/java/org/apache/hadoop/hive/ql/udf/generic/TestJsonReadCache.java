@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.ql.udf.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TestJsonReadCache {
+
+    @Test
+    public void testLookupInPlace() {
+        JsonReadCache cache = new JsonReadCache(10, 1024);
+        byte[] buffer = "{\"a\":1}garbage".getBytes(StandardCharsets.UTF_8);
+        Object result = new Object();
+        assertNull(cache.get(buffer, 7));
+        cache.put(buffer, 7, result);
+
+        // the cached key is a copy, so the caller may overwrite its buffer
+        buffer[5] = '2';
+        assertNull(cache.get(buffer, 7));
+        assertSame(result, cache.get(bytes("{\"a\":1}"), 7));
+        assertNull(cache.get(bytes("{\"a\":1} "), 8));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testByteBound() {
+        JsonReadCache cache = new JsonReadCache(10, 10);
+        cache.put(bytes("aaaa"), 4, "a");
+        cache.put(bytes("bbbb"), 4, "b");
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getBytes());
+
+        cache.put(bytes("cccc"), 4, "c");
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getBytes());
+        assertNull(cache.get(bytes("aaaa"), 4));
+        assertEquals("b", cache.get(bytes("bbbb"), 4));
+
+        // larger than the whole cache
+        cache.put(bytes("ddddddddddd"), 11, "d");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(bytes("ddddddddddd"), 11));
+    }
+
+    @Test
+    public void testNullResult() {
+        JsonReadCache cache = new JsonReadCache(10, 1024);
+        cache.put(bytes("null"), 4, null);
+        assertEquals(0, cache.size());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
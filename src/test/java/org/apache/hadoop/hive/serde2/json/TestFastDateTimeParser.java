@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.common.type.Timestamp;
+import org.junit.Test;
+
+public class TestFastDateTimeParser {
+
+    private final FastDateTimeParser parser = new FastDateTimeParser();
+
+    @Test
+    public void testTimestampLayouts() {
+        String[] values = { "2020-01-02 03:04:05", "2020-01-02 03:04:05.1",
+                "2020-01-02 03:04:05.123456789", "2020-01-02T03:04:05", "2020-01-02T03:04:05.120",
+                "1969-12-31 23:59:59.999", "0001-01-01 00:00:00", "9999-12-31 23:59:59.999999999",
+                "2000-02-29 12:00:00", "1900-03-01 00:00:00" };
+        for (String value : values) {
+            assertTrue(value, parseTimestamp(value));
+            assertEquals(value, Timestamp.valueOf(value),
+                    Timestamp.ofEpochSecond(parser.getEpochSecond(), parser.getNanos()));
+        }
+    }
+
+    @Test
+    public void testZulu() {
+        assertTrue(parseTimestamp("2020-01-02T03:04:05.123Z"));
+        assertEquals(Timestamp.valueOf("2020-01-02 03:04:05.123"),
+                Timestamp.ofEpochSecond(parser.getEpochSecond(), parser.getNanos()));
+    }
+
+    @Test
+    public void testFallback() {
+        // lenient values, other layouts and whitespace are left to the generic parser
+        String[] values = { "2020-02-30 00:00:00", "2020-13-01 00:00:00", "2020-01-01 24:00:00",
+                "1900-02-29 00:00:00", "0000-01-01 00:00:00", " 2020-01-01 00:00:00", "2020-01-01 00:00:00 ",
+                "2020-01-01 00:00", "2020-01-01T00:00", "2020-01-01 00:00:00.", "2020-01-01 00:00:00.1234567890",
+                "2020-01-01 00:00:00Z", "2020-01-01", "2020/01/01", "20200101", "", "2020-1-1 00:00:00" };
+        for (String value : values) {
+            assertFalse(value, parseTimestamp(value));
+        }
+    }
+
+    @Test
+    public void testDate() {
+        assertTrue(parseDate("2020-03-04"));
+        assertEquals(Date.valueOf("2020-03-04"), Date.ofEpochDay(parser.getEpochDay()));
+        assertTrue(parseDate("2020-03-04 10:00:00"));
+        assertEquals(Date.valueOf("2020-03-04"), Date.ofEpochDay(parser.getEpochDay()));
+        assertFalse(parseDate("2020-03-04T10:00:00"));
+        assertFalse(parseDate("2019-02-29"));
+    }
+
+    @Test
+    public void testEpochDay() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            LocalDate date = LocalDate.ofEpochDay(random.nextInt(3652059) - 719162);
+            assertEquals(date.toString(), date.toEpochDay(),
+                    FastDateTimeParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+    }
+
+    private boolean parseTimestamp(String value) {
+        char[] chars = ("##" + value + "##").toCharArray();
+        return parser.parseTimestamp(chars, 2, value.length());
+    }
+
+    private boolean parseDate(String value) {
+        char[] chars = ("##" + value + "##").toCharArray();
+        return parser.parseDate(chars, 2, value.length());
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.common.type.Timestamp;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+import org.junit.Test;
+
+public class TestFastValueFormatter {
+
+    private final FastValueFormatter formatter = new FastValueFormatter();
+
+    @Test
+    public void testDoubleLayouts() {
+        double[] values = { 0.0, -0.0, 1.0, -0.25, 0.1, 0.001, 9.999e-4, 100.0, 123.456, 9999999.0, 1e7,
+                12345678.9, 1e16, 1e22, 1e23, 2e-3, 5e-324, 2e-323, Double.MIN_NORMAL, Double.MAX_VALUE };
+        String[] expected = { "0.0", "-0.0", "1.0", "-0.25", "0.1", "0.001", "9.999E-4", "100.0", "123.456",
+                "9999999.0", "1.0E7", "1.23456789E7", "1.0E16", "1.0E22", "1.0E23", "0.002", "4.9E-324",
+                "2.0E-323", "2.2250738585072014E-308", "1.7976931348623157E308" };
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(expected[i], formatDouble(values[i]));
+        }
+    }
+
+    @Test
+    public void testDoubleRoundTrip() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (!Double.isFinite(value)) {
+                continue;
+            }
+            String text = formatDouble(value);
+            assertEquals(text, value, Double.parseDouble(text), 0.0);
+            // never longer than the text of the JDK, which is not always the shortest before JDK 19
+            assertTrue(text, text.length() <= Double.toString(value).length());
+        }
+    }
+
+    @Test
+    public void testFloatLayouts() {
+        float[] values = { 0.0f, -0.0f, 1.0f, 1.5f, 0.1f, 0.001f, 9.999e-4f, 9999999.0f, 1e7f, 1.0E10f, 2e-3f,
+                Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE, 3.4028235E38f, 16777216f, 1.1f };
+        String[] expected = { "0.0", "-0.0", "1.0", "1.5", "0.1", "0.001", "9.999E-4", "9999999.0", "1.0E7",
+                "1.0E10", "0.002", "1.4E-45", "1.1754944E-38", "3.4028235E38", "3.4028235E38", "1.6777216E7",
+                "1.1" };
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(expected[i], text(formatter.formatFloat(values[i])));
+        }
+    }
+
+    @Test
+    public void testFloatRoundTrip() {
+        Random random = new Random(13);
+        for (int i = 0; i < 100000; i++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            if (!Float.isFinite(value)) {
+                continue;
+            }
+            String text = text(formatter.formatFloat(value));
+            assertEquals(text, value, Float.parseFloat(text), 0.0f);
+            assertTrue(text, text.length() <= Float.toString(value).length());
+        }
+    }
+
+    @Test
+    public void testDecimal() {
+        String[] values = { "0", "12.3", "-0.0000001", "123456789012345678901234567890.5" };
+        for (String value : values) {
+            HiveDecimal decimal = HiveDecimal.create(value);
+            assertEquals(value, text(formatter.formatDecimal(decimal)));
+            assertEquals(value, text(formatter.formatDecimal(new HiveDecimalWritable(decimal))));
+        }
+    }
+
+    @Test
+    public void testDate() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            Date date = Date.ofEpochDay(random.nextInt(3652059) - 719162);
+            assertEquals(date.toString(), text(formatter.formatDate(date.toEpochDay())));
+        }
+        assertEquals("0001-01-01", text(formatter.formatDate(-719162)));
+        assertEquals("9999-12-31", text(formatter.formatDate(2932896)));
+        // years before 1 and after 9999 are left to Date.toString
+        assertEquals(-1, formatter.formatDate(-719163));
+        assertEquals(-1, formatter.formatDate(2932897));
+    }
+
+    @Test
+    public void testTimestamp() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            long seconds = (long) (random.nextDouble() * 315537897600L) - 62135596800L;
+            int nanos = random.nextBoolean() ? 0 : random.nextInt(1000000000) / 1000 * 1000;
+            Timestamp timestamp = Timestamp.ofEpochSecond(seconds, nanos);
+            assertEquals(timestamp.toString(), text(formatter.formatTimestamp(seconds, nanos)));
+        }
+        assertEquals("1969-12-31 23:59:59.999", text(formatter.formatTimestamp(-1, 999000000)));
+        assertEquals("0001-01-01 00:00:00.000000001", text(formatter.formatTimestamp(-62135596800L, 1)));
+        assertEquals(-1, formatter.formatTimestamp(-62135596801L, 0));
+    }
+
+    private String formatDouble(double value) {
+        return text(formatter.formatDouble(value));
+    }
+
+    private String text(int length) {
+        return new String(formatter.getChars(), 0, length);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.common.type.Timestamp;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DateWritableV2;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+import org.apache.hadoop.hive.serde2.io.HiveVarcharWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritableV2;
+import org.apache.hadoop.hive.serde2.json.HiveJsonReader.Feature;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+public class TestHiveJsonReader {
+
+    @Test
+    public void testCoercion() throws Exception {
+        HiveJsonReader reader = reader("struct<i:int,l:bigint,d:double,b:boolean,s:string,n:decimal(10,2)>");
+
+        List<?> res = (List<?>) reader.parseStruct("{\"i\":\"12\",\"l\":1.9,\"d\":\"2.5\",\"b\":1,\"s\":1.50,\"n\":3}");
+        assertEquals(Arrays.asList(12, 1L, 2.5, true, "1.5", HiveDecimal.create(3)), res);
+
+        res = (List<?>) reader.parseStruct("{\"i\":true,\"l\":\"x\",\"d\":false,\"b\":\" true \",\"s\":false}");
+        assertEquals(Arrays.asList(1, 0L, 0.0, true, "false", null), res);
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        HiveJsonReader reader = reader("struct<a:array<struct<x:int>>,m:map<int,array<string>>>");
+
+        List<?> res = (List<?>) reader.parseStruct(
+                "{\"m\":{\"1\":[\"a\",null],\"2\":[]},\"a\":[{\"x\":1},null,{}]}");
+        assertEquals(Arrays.asList(Arrays.asList(1), null, Arrays.asList((Object) null)), res.get(0));
+        Map<?, ?> m = (Map<?, ?>) res.get(1);
+        assertEquals(Arrays.asList("a", null), m.get(1));
+        assertEquals(Arrays.asList(), m.get(2));
+    }
+
+    @Test
+    public void testWritable() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int,b:string>");
+        reader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+
+        List<?> res = (List<?>) reader.parseStruct("{\"a\":1,\"b\":\"x\"}");
+        assertEquals(Arrays.asList(new IntWritable(1), new Text("x")), res);
+    }
+
+    @Test
+    public void testWritableTypes() throws Exception {
+        HiveJsonReader reader = reader("struct<t:tinyint,s:smallint,l:bigint,b:boolean,f:float,d:double,"
+                + "n:decimal(4,1),dt:date,v:varchar(2),x:binary>");
+        reader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+
+        List<?> res = (List<?>) reader.parseStruct("{\"t\":1,\"s\":2,\"l\":3,\"b\":true,\"f\":1.5,\"d\":2.5,"
+                + "\"n\":\"1.25\",\"dt\":\"2020-01-02\",\"v\":\"abc\",\"x\":\"aGl2ZQ==\"}");
+        assertEquals(Arrays.asList(new ByteWritable((byte) 1), new ShortWritable((short) 2), new LongWritable(3),
+                new BooleanWritable(true), new FloatWritable(1.5f), new DoubleWritable(2.5),
+                new HiveDecimalWritable(HiveDecimal.create("1.3")), new DateWritableV2(Date.valueOf("2020-01-02")),
+                new HiveVarcharWritable(new HiveVarchar("ab", 2)),
+                new BytesWritable("hive".getBytes(StandardCharsets.UTF_8))), res);
+    }
+
+    @Test
+    public void testFeatureChange() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int>");
+
+        assertEquals(Arrays.asList(1), reader.parseStruct("{\"a\":1}"));
+        reader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+        assertEquals(Arrays.asList(new IntWritable(1)), reader.parseStruct("{\"a\":1}"));
+        reader.disable(Feature.PRIMITIVE_TO_WRITABLE);
+        assertEquals(Arrays.asList(1), reader.parseStruct("{\"a\":1}"));
+    }
+
+    @Test
+    public void testReuseObjects() throws Exception {
+        HiveJsonReader reader = reader("struct<i:int,s:string,l:array<struct<d:double>>,m:map<string,int>>");
+        reader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+        reader.enable(Feature.REUSE_OBJECTS);
+
+        List<?> first = (List<?>) reader.parseStruct(
+                "{\"i\":1,\"s\":\"ab\",\"l\":[{\"d\":1.5},{\"d\":2.5}],\"m\":{\"k\":1}}");
+        Object text = first.get(1);
+        Object element = ((List<?>) first.get(2)).get(1);
+        Object map = first.get(3);
+
+        List<?> second = (List<?>) reader.parseStruct(
+                "{\"s\":\"한\\ud800\\ud83d\\ude00\",\"l\":[null,{\"d\":3}],\"m\":{\"j\":2}}");
+        assertSame(first, second);
+        assertSame(text, second.get(1));
+        assertSame(element, ((List<?>) second.get(2)).get(1));
+        assertSame(map, second.get(3));
+        assertEquals(new Text("한\ud800\ud83d\ude00"), second.get(1));
+        assertEquals(Arrays.asList(null, new Text("한\ud800\ud83d\ude00"),
+                Arrays.asList(null, Arrays.asList(new DoubleWritable(3))),
+                Collections.singletonMap(new Text("j"), new IntWritable(2))), second);
+
+        // a different shape still parses
+        assertNull(reader.parseStruct("null"));
+        List<?> third = (List<?>) reader.parseStruct("{\"l\":[{},{},{\"d\":4}]}");
+        assertSame(first, third);
+        assertEquals(Arrays.asList(null, null, Arrays.asList(Arrays.asList((Object) null),
+                Arrays.asList((Object) null), Arrays.asList(new DoubleWritable(4))), null), third);
+    }
+
+    @Test
+    public void testTimestamps() throws Exception {
+        HiveJsonReader reader = reader("array<timestamp>");
+
+        assertEquals(Arrays.asList(Timestamp.valueOf("2020-01-02 03:04:05.6"), Timestamp.valueOf("2020-01-02 03:04:05"),
+                Timestamp.valueOf("2020-03-01 00:00:00"), Timestamp.ofEpochMilli(1600000000123L), null),
+                reader.parseStruct("[\"2020-01-02 03:04:05.6\",\"2020-01-02T03:04:05Z\",\"2020-02-30 00:00:00\","
+                        + "1600000000123,null]"));
+
+        reader.enable(Feature.PRIMITIVE_TO_WRITABLE);
+        reader.enable(Feature.REUSE_OBJECTS);
+        List<?> first = (List<?>) reader.parseStruct("[\"2020-01-02 03:04:05\"]");
+        Object writable = first.get(0);
+        List<?> second = (List<?>) reader.parseStruct("[\"2021-01-02 03:04:05.7\"]");
+        assertSame(writable, second.get(0));
+        assertEquals(new TimestampWritableV2(Timestamp.valueOf("2021-01-02 03:04:05.7")), writable);
+    }
+
+    @Test
+    public void testDates() throws Exception {
+        HiveJsonReader reader = reader("array<date>");
+
+        assertEquals(Arrays.asList(Date.valueOf("2020-01-02"), Date.valueOf("2020-01-03"), Date.valueOf("2020-03-01")),
+                reader.parseStruct("[\"2020-01-02\",\"2020-01-03 10:00:00\",\"2020-02-30\"]"));
+    }
+
+    @Test
+    public void testInputStream() throws Exception {
+        HiveJsonReader reader = reader("struct<a:string>");
+
+        List<?> res = (List<?>) reader.parseStruct(
+                new ByteArrayInputStream("{\"a\":\"한\"}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Arrays.asList("한"), res);
+        assertNull(reader.parseStruct(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void testIgnoreUnknownFields() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int,c:int>");
+        reader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+
+        List<?> res = (List<?>) reader.parseStruct("{\"a\":1,\"b\":{\"x\":[1,{\"y\":2}]},\"c\":3}");
+        assertEquals(Arrays.asList(1, 3), res);
+        res = (List<?>) reader.parseStruct("{\"b\":[],\"c\":4}");
+        assertEquals(Arrays.asList(null, 4), res);
+    }
+
+    @Test
+    public void testFieldLookup() throws Exception {
+        HiveJsonReader reader = reader("struct<ab:int,cd:int>");
+        reader.enable(Feature.COL_INDEX_PARSING);
+
+        assertEquals(Arrays.asList(1, 2), reader.parseStruct("{\"AB\":1,\"_col1\":2}"));
+        assertEquals(Arrays.asList(3, 4), reader.parseStruct("{\"Ab\":3,\"1\":4}"));
+        assertEquals(Arrays.asList(5, 6), reader.parseStruct("{\"AB\":5,\"_col1\":6}"));
+    }
+
+    @Test
+    public void testDynamicUnknownFields() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int>");
+        reader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+
+        for (int row = 0; row < 3; row++) {
+            StringBuilder json = new StringBuilder("{");
+            for (int i = 0; i < StructFieldResolver.MAX_DISCOVERED_NAMES; i++) {
+                json.append("\"k").append(row).append('_').append(i).append("\":").append(i).append(',');
+            }
+            json.append("\"a\":").append(row).append('}');
+            assertEquals(Arrays.asList(row), reader.parseStruct(json.toString()));
+        }
+    }
+
+    @Test
+    public void testResolverBound() {
+        StructFieldResolver resolver = new StructFieldResolver((StructObjectInspector) reader("struct<a:int,b:int>")
+                .getObjectInspector());
+        assertEquals(1, resolver.lookup(new String("b")));
+        assertEquals(StructFieldResolver.NOT_FOUND, resolver.lookup("c"));
+
+        for (int i = 0; i < StructFieldResolver.MAX_DISCOVERED_NAMES; i++) {
+            assertTrue(resolver.remember("k" + i, StructFieldResolver.UNKNOWN));
+        }
+        assertFalse(resolver.remember("B", 1));
+        assertEquals(StructFieldResolver.UNKNOWN, resolver.lookup("k7"));
+        assertEquals(0, resolver.lookup("a"));
+        assertEquals(StructFieldResolver.NOT_FOUND, resolver.lookup("B"));
+    }
+
+    @Test(expected = SerDeException.class)
+    public void testUnknownField() throws Exception {
+        reader("struct<a:int>").parseStruct("{\"a\":1,\"b\":2}");
+    }
+
+    @Test
+    public void testStringifyComplexFields() throws Exception {
+        HiveJsonReader reader = reader("struct<a:string,b:int>");
+        reader.enable(Feature.STRINGIFY_COMPLEX_FIELDS);
+
+        List<?> res = (List<?>) reader.parseStruct("{\"a\":{\"x\": [1, \"y\"]},\"b\":2}");
+        assertEquals(Arrays.asList("{\"x\":[1,\"y\"]}", 2), res);
+    }
+
+    @Test(expected = SerDeException.class)
+    public void testComplexFieldAsString() throws Exception {
+        reader("struct<a:string>").parseStruct("{\"a\":[1]}");
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        HiveJsonReader reader = reader("struct<a:binary>");
+
+        List<?> res = (List<?>) reader.parseStruct("{\"a\":\"aGl2ZQ==\"}");
+        assertArrayEquals("hive".getBytes(StandardCharsets.UTF_8), (byte[]) res.get(0));
+
+        reader.setBinaryEncoding(BinaryEncoding.RAWSTRING);
+        res = (List<?>) reader.parseStruct("{\"a\":\"hive\"}");
+        assertArrayEquals("hive".getBytes(StandardCharsets.UTF_8), (byte[]) res.get(0));
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        String type = "struct<a:array<struct<x:int,y:string>>,m:map<string,int>,s:struct<t:timestamp>,n:string>";
+        HiveJsonReader reader = reader(type);
+        String json = "{\"n\":null,\"s\":{\"t\":\"2020-01-02 03:04:05\"},\"a\":[{\"x\":1,\"y\":\"\\u00e9\"},null,{\"x\":\"2\"}],"
+                + "\"m\":{\"k\":3},\"a\":[{\"y\":\"z\"}]}";
+        byte[] bytes = ("  " + json + "  ").getBytes(StandardCharsets.UTF_8);
+
+        ObjectInspector lazyOI = reader.getLazyObjectInspector();
+        assertEquals(reader.getObjectInspector().getTypeName(), lazyOI.getTypeName());
+        Object lazy = reader.parseLazy(bytes, 1, bytes.length - 2);
+        assertEquals(ObjectInspectorUtils.copyToStandardJavaObject(reader.parseStruct(json), reader.getObjectInspector()),
+                ObjectInspectorUtils.copyToStandardJavaObject(lazy, lazyOI));
+
+        // fields are parsed once
+        StructObjectInspector soi = (StructObjectInspector) lazyOI;
+        StructField s = soi.getStructFieldRef("s");
+        assertSame(soi.getStructFieldData(lazy, s), soi.getStructFieldData(lazy, s));
+
+        ListObjectInspector loi = (ListObjectInspector) soi.getStructFieldRef("a").getFieldObjectInspector();
+        Object a = soi.getStructFieldData(lazy, soi.getStructFieldRef("a"));
+        assertEquals(1, loi.getListLength(a));
+        assertNull(loi.getListElement(a, 1));
+        assertNull(soi.getStructFieldData(null, s));
+
+        assertNull(reader.parseLazy(bytes, 0, 1));
+        assertNull(reader.parseLazy("null".getBytes(StandardCharsets.UTF_8), 0, 4));
+    }
+
+    @Test
+    public void testLazyRoots() throws Exception {
+        byte[] bytes = "[[1,2],[],null]".getBytes(StandardCharsets.UTF_8);
+        HiveJsonReader reader = reader("array<array<int>>");
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Collections.emptyList(), null),
+                reader.parseLazy(bytes, 0, bytes.length));
+
+        bytes = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        reader = reader("map<string,int>");
+        assertSame(reader.getObjectInspector(), reader.getLazyObjectInspector());
+        assertEquals(Collections.singletonMap("a", 1), reader.parseLazy(bytes, 0, bytes.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLazyParsesOnDemand() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int,b:struct<c:int>,d:array<int>>");
+        byte[] bytes = "{\"a\":1,\"b\":\"not an object\",\"d\":[{\"e\":[]}]}".getBytes(StandardCharsets.UTF_8);
+        Object lazy = reader.parseLazy(bytes, 0, bytes.length);
+        StructObjectInspector soi = (StructObjectInspector) reader.getLazyObjectInspector();
+
+        // the malformed fields are skipped until they are read
+        assertEquals(1, soi.getStructFieldData(lazy, soi.getStructFieldRef("a")));
+        Object b = soi.getStructFieldData(lazy, soi.getStructFieldRef("b"));
+        StructObjectInspector boi = (StructObjectInspector) soi.getStructFieldRef("b").getFieldObjectInspector();
+        boi.getStructFieldData(b, boi.getStructFieldRef("c"));
+    }
+
+    @Test
+    public void testNullOnError() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int,b:array<string>,d:date>");
+        reader.enable(Feature.NULL_ON_ERROR);
+
+        assertNull(reader.parseStruct("{\"a\":1,"));
+        assertNull(reader.parseStruct("{\"a\":{}}"));
+        assertNull(reader.parseStruct("{\"b\":\"x\"}"));
+        assertNull(reader.parseStruct("{\"c\":1}"));
+        assertNull(reader.parseStruct("{\"d\":\"not a date\"}"));
+        assertNull(reader.parseStruct("[]"));
+        assertEquals(6, reader.getErrorCount());
+
+        assertEquals(Arrays.asList(1, null, null), reader.parseStruct("{\"a\":1}"));
+        assertNull(reader.parseStruct("null"));
+        assertEquals(6, reader.getErrorCount());
+    }
+
+    @Test
+    public void testNullOnErrorFirstToken() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int>");
+        reader.enable(Feature.NULL_ON_ERROR);
+
+        // documents that do not even start as JSON
+        assertNull(reader.parseStruct("N/A"));
+        assertNull(reader.parseStruct("<html>"));
+        assertNull(reader.parseStruct("}"));
+        assertEquals(3, reader.getErrorCount());
+        assertEquals(Arrays.asList(1), reader.parseStruct("{\"a\":1}"));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testFirstTokenWithoutNullOnError() throws Exception {
+        reader("struct<a:int>").parseStruct("N/A");
+    }
+
+    @Test(expected = SerDeException.class)
+    public void testMismatchWithoutNullOnError() throws Exception {
+        reader("struct<a:string>").parseStruct("{\"a\":{}}");
+    }
+
+    @Test
+    public void testStructuralIndex() throws Exception {
+        String type = "struct<id:bigint,meta:struct<name:string,tags:array<string>>,m:map<string,int>,t:double>";
+        String json = "{\"payload\":" + largePayload() + ",\"id\": 12 ,\"skip\":\"a\\\"}{[\","
+                + " \"meta\" : {\"x\":[{}],\"name\":\"n\\u00e9\",\"tags\":[\"a\",null]},"
+                + "\"m\":{\"k\":1},\"t\":-1.5e3,\"e\\u0078tra\":{}}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertTrue(bytes.length >= HiveJsonReader.STRUCTURAL_INDEX_MIN_LENGTH);
+
+        HiveJsonReader expected = reader(type);
+        expected.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+        HiveJsonReader indexed = reader(type);
+        indexed.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+        indexed.enable(Feature.STRUCTURAL_INDEX);
+
+        List<?> res = (List<?>) indexed.parseStruct(bytes, 0, bytes.length);
+        assertEquals(expected.parseStruct(json), res);
+        assertEquals(Arrays.asList(12L, Arrays.asList("n\u00e9", Arrays.asList("a", null)),
+                Collections.singletonMap("k", 1), -1500.0), res);
+
+        indexed.enable(Feature.REUSE_OBJECTS);
+        assertSame(indexed.parseStruct(bytes, 0, bytes.length), indexed.parseStruct(bytes, 0, bytes.length));
+        assertEquals(res, indexed.parseStruct(bytes, 0, bytes.length));
+
+        // skipped values are not tokenized
+        bytes = ("{\"bad\":[tru,1x]," + json.substring(1)).getBytes(StandardCharsets.UTF_8);
+        assertEquals(res, indexed.parseStruct(bytes, 0, bytes.length));
+
+        // small documents take the one pass parser
+        byte[] small = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(1L, null, null, null), indexed.parseStruct(small, 0, small.length));
+    }
+
+    @Test
+    public void testStructuralIndexErrors() throws Exception {
+        HiveJsonReader reader = reader("struct<a:int,b:struct<c:int>>");
+        reader.enable(Feature.IGNORE_UNKNOWN_FIELDS);
+        reader.enable(Feature.STRUCTURAL_INDEX);
+        reader.enable(Feature.NULL_ON_ERROR);
+
+        String payload = "\"p\":" + largePayload();
+        String[] malformed = { "{" + payload + ",\"a\":1", "{" + payload + ",\"a\" 1}", "{" + payload + ",\"a\":}",
+                "{" + payload + ",\"a\":1 \"b\":{}}", "{" + payload + ",\"b\":[]}", "{" + payload + ",a:1}" };
+        for (String json : malformed) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            assertNull(json, reader.parseStruct(bytes, 0, bytes.length));
+        }
+        assertEquals(malformed.length, reader.getErrorCount());
+
+        byte[] bytes = ("{" + payload + ",\"b\":{\"c\":2},\"a\":1}").getBytes(StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList(1, Collections.singletonList(2)), reader.parseStruct(bytes, 0, bytes.length));
+    }
+
+    private static String largePayload() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; sb.length() < HiveJsonReader.STRUCTURAL_INDEX_MIN_LENGTH; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"v\":").append(i)
+                    .append(",\"s\":\"}]\\\\\",\"q\":[true,null,\"\\\"{\"]}");
+        }
+        return sb.append("]").toString();
+    }
+
+    static HiveJsonReader reader(String typeStr) {
+        ObjectInspector oi = TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString(typeStr));
+        return new HiveJsonReader(oi);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.hive.common.type.Date;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.common.type.Timestamp;
+import org.apache.hadoop.hive.serde2.io.DateWritableV2;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritableV2;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardUnionObjectInspector.StandardUnion;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class TestHiveJsonWriter {
+
+    @Test
+    public void testPrimitives() throws Exception {
+        ObjectInspector oi = oi("struct<b:boolean,t:tinyint,s:smallint,i:int,l:bigint,f:float,d:double,"
+                + "dc:decimal(10,2),str:string,dt:date,ts:timestamp,bin:binary,n:string>");
+        Object row = Arrays.asList(true, (byte) 1, (short) 2, 3, 4L, 1.5f, -0.25, HiveDecimal.create("12.30"),
+                "a\"é\n", Date.valueOf("2020-01-02"), Timestamp.valueOf("2020-01-02 03:04:05.5"),
+                "hi".getBytes(StandardCharsets.UTF_8), null);
+
+        assertEquals("{\"b\":true,\"t\":1,\"s\":2,\"i\":3,\"l\":4,\"f\":1.5,\"d\":-0.25,\"dc\":12.3,"
+                + "\"str\":\"a\\\"é\\n\",\"dt\":\"2020-01-02\",\"ts\":\"2020-01-02 03:04:05.5\","
+                + "\"bin\":\"aGk=\",\"n\":null}", new HiveJsonWriter().write(row, oi));
+
+        HiveJsonWriter raw = new HiveJsonWriter();
+        raw.setBinaryEncoding(BinaryEncoding.RAWSTRING);
+        assertEquals("\"hi\"", raw.write("hi".getBytes(StandardCharsets.UTF_8), oi("binary")));
+    }
+
+    @Test
+    public void testFormattedValues() throws Exception {
+        ObjectInspector oi = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString("struct<d:double,dc:decimal(10,8),dt:date,ts:timestamp>"));
+        Object row = Arrays.asList(new DoubleWritable(0.001), new HiveDecimalWritable("0.0000001"),
+                new DateWritableV2(Date.valueOf("2020-01-02")),
+                new TimestampWritableV2(Timestamp.valueOf("2020-01-02 03:04:05.12")));
+        HiveJsonWriter writer = new HiveJsonWriter();
+        // decimals keep the plain notation of HiveDecimal
+        assertEquals("{\"d\":0.001,\"dc\":0.0000001,\"dt\":\"2020-01-02\",\"ts\":\"2020-01-02 03:04:05.12\"}",
+                writer.write(row, oi));
+
+        // values the formatter does not cover
+        Object outOfRange = Arrays.asList(Double.NaN, HiveDecimal.create("-1E-7"), Date.ofEpochDay(3000000),
+                Timestamp.ofEpochSecond(-62135596801L));
+        assertEquals("{\"d\":\"NaN\",\"dc\":-0.0000001,\"dt\":\"+10183-09-21\",\"ts\":\"0001-12-31 23:59:59\"}",
+                writer.write(outOfRange, oi("struct<d:double,dc:decimal(10,8),dt:date,ts:timestamp>")));
+
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put(1e23, Date.valueOf("1969-12-31"));
+        map.put(-0.5, null);
+        assertEquals("{\"1.0E23\":\"1969-12-31\",\"-0.5\":null}", writer.write(map, oi("map<double,date>")));
+
+        Map<Object, Object> floats = new LinkedHashMap<>();
+        floats.put(0.1f, Arrays.asList(1e10f, Float.NaN, -0.0f));
+        assertEquals("{\"0.1\":[1.0E10,\"NaN\",-0.0]}", writer.write(floats, oi("map<float,array<float>>")));
+    }
+
+    @Test
+    public void testComplex() throws Exception {
+        // the standard java inspectors from type strings do not cover unions
+        ObjectInspector oi = ObjectInspectorFactory.getStandardStructObjectInspector(Arrays.asList("a", "m", "u"),
+                Arrays.asList(oi("array<struct<x:int>>"), oi("map<int,array<string>>"),
+                        ObjectInspectorFactory.getStandardUnionObjectInspector(Arrays.asList(
+                                PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                                PrimitiveObjectInspectorFactory.javaStringObjectInspector))));
+        Map<Integer, Object> map = new LinkedHashMap<>();
+        map.put(1, Arrays.asList("v", null));
+        map.put(2, null);
+        Object row = Arrays.asList(Arrays.asList(Collections.singletonList(1), null), map,
+                new StandardUnion((byte) 1, "s"));
+
+        HiveJsonWriter writer = new HiveJsonWriter();
+        String expected = "{\"a\":[{\"x\":1},null],\"m\":{\"1\":[\"v\",null],\"2\":null},\"u\":{\"1\":\"s\"}}";
+        assertEquals(expected, writer.write(row, oi));
+        // the buffer is reused
+        assertEquals(expected, writer.write(row, oi));
+        assertEquals("null", writer.write(null, oi));
+        assertEquals("[]", writer.write(Collections.emptyList(), oi("array<int>")));
+    }
+
+    @Test
+    public void testRootFieldNames() throws Exception {
+        HiveJsonWriter writer = new HiveJsonWriter(BinaryEncoding.BASE64, Arrays.asList("first", "second"));
+        assertEquals("{\"first\":1,\"second\":{\"y\":2}}",
+                writer.write(Arrays.asList(1, Collections.singletonList(2)), oi("struct<a:int,b:struct<y:int>>")));
+    }
+
+    @Test
+    public void testInspectorChange() throws Exception {
+        HiveJsonWriter writer = new HiveJsonWriter();
+        ObjectInspector first = oi("struct<a:int>");
+        ObjectInspector second = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(
+                TypeInfoUtils.getTypeInfoFromTypeString("struct<b:string,c:binary>"));
+        Object bytes = new BytesWritable("hi".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < 2; i++) {
+            assertEquals("{\"a\":1}", writer.write(Collections.singletonList(1), first));
+            assertEquals("{\"b\":\"\\u0001é\",\"c\":\"aGk=\"}",
+                    writer.write(Arrays.asList(new Text("\u0001é"), bytes), second));
+        }
+        writer.setBinaryEncoding(BinaryEncoding.RAWSTRING);
+        assertEquals("{\"b\":null,\"c\":\"hi\"}", writer.write(Arrays.asList(null, bytes), second));
+    }
+
+    @Test
+    public void testSinks() throws Exception {
+        HiveJsonWriter writer = new HiveJsonWriter();
+        ObjectInspector oi = oi("struct<a:int,s:string>");
+        String expected = "{\"a\":1,\"s\":\"é\"}";
+        byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+
+        Text text = new Text("old content");
+        writer.write(Arrays.asList(1, "é"), oi, text);
+        assertEquals(expected, text.toString());
+
+        DataOutputBuffer out = new DataOutputBuffer();
+        writer.write(Arrays.asList(1, "é"), oi, out);
+        writer.write(Arrays.asList(2, null), oi, out);
+        assertEquals(expected + "{\"a\":2,\"s\":null}", new String(out.getData(), 0, out.getLength(),
+                StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.allocate(expectedBytes.length + 2);
+        buffer.put((byte) '[');
+        assertEquals(expectedBytes.length, writer.write(Arrays.asList(1, "é"), oi, buffer));
+        assertEquals(expectedBytes.length + 1, buffer.position());
+        try {
+            writer.write(Arrays.asList(1, "é"), oi, buffer);
+            fail();
+        } catch (BufferOverflowException e) {
+            assertEquals(expectedBytes.length + 1, buffer.position());
+        }
+    }
+
+    @Test
+    public void testFailedWrite() throws Exception {
+        HiveJsonWriter writer = new HiveJsonWriter();
+        ObjectInspector oi = oi("struct<a:int,b:array<int>>");
+        try {
+            writer.write(Arrays.asList(1, "not a list"), oi);
+            fail();
+        } catch (ClassCastException e) {
+            // the next document starts from a clean generator
+        }
+        assertEquals("{\"a\":2,\"b\":[]}", writer.write(Arrays.asList(2, Collections.emptyList()), oi));
+    }
+
+    @Test
+    public void testPrettyPrint() throws Exception {
+        HiveJsonWriter writer = new HiveJsonWriter();
+        writer.enable(HiveJsonWriter.Feature.PRETTY_PRINT);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("{\n  \"a\" : 1,\n  \"b\" : [ 2 ]\n}",
+                    writer.write(Arrays.asList(1, Collections.singletonList(2)), oi("struct<a:int,b:array<int>>")));
+        }
+        writer.disable(HiveJsonWriter.Feature.PRETTY_PRINT);
+        assertEquals("[2]", writer.write(Collections.singletonList(2), oi("array<int>")));
+    }
+
+    private static ObjectInspector oi(String type) {
+        return TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(TypeInfoUtils.getTypeInfoFromTypeString(type));
+    }
+}
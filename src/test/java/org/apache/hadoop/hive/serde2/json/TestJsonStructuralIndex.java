@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hive.serde2.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestJsonStructuralIndex {
+
+    private final JsonStructuralIndex index = new JsonStructuralIndex();
+
+    @Test
+    public void testPositions() {
+        String json = " {\"a\\\\\":[1,{\"b\":\"]\\\"{\"}],\"c\":{}} ";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertTrue(index.build(bytes, 0, bytes.length));
+        assertArrayEquals(reference(bytes, 0, bytes.length), positions());
+
+        // {, :, [, ',', {, :, }, ], ',', :, {, }, }
+        assertEquals(13, index.size());
+        assertEquals(12, index.match(0));
+        assertEquals(7, index.match(2));
+        assertEquals(6, index.match(4));
+        assertEquals(11, index.match(10));
+    }
+
+    @Test
+    public void testRandomDocuments() {
+        Random random = new Random(42);
+        String[] tokens = { "{", "}", "[", "]", ":", ",", "\"", "\\", "x", " ", "é", "\\\"", "\\\\" };
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder sb = new StringBuilder("{");
+            int length = random.nextInt(100);
+            for (int j = 0; j < length; j++) {
+                sb.append(tokens[random.nextInt(tokens.length)]);
+            }
+            byte[] bytes = ("xx" + sb + "yy").getBytes(StandardCharsets.UTF_8);
+            int[] expected = reference(bytes, 2, bytes.length - 4);
+            assertEquals(sb.toString(), expected != null, index.build(bytes, 2, bytes.length - 4));
+            if (expected != null) {
+                assertArrayEquals(sb.toString(), expected, positions());
+            }
+        }
+    }
+
+    @Test
+    public void testRejected() {
+        for (String json : new String[] { "", "  ", "[]", "{", "{\"}", "{]", "{[}]", "{}}", "1" }) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            assertFalse(json, index.build(bytes, 0, bytes.length));
+        }
+    }
+
+    private int[] positions() {
+        int[] positions = new int[index.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = index.position(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Byte by byte scan with the same contract as the index, or null if the
+     * document is rejected.
+     */
+    private static int[] reference(byte[] bytes, int offset, int length) {
+        List<Integer> positions = new ArrayList<>();
+        StringBuilder open = new StringBuilder();
+        boolean inString = false;
+        String trimmed = new String(bytes, offset, length, StandardCharsets.UTF_8).trim();
+        if (!trimmed.startsWith("{")) {
+            return null;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            char c = (char) bytes[i];
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                open.append(c);
+                positions.add(i);
+            } else if (c == '}' || c == ']') {
+                if (open.length() == 0 || open.charAt(open.length() - 1) != (c == '}' ? '{' : '[')) {
+                    return null;
+                }
+                open.setLength(open.length() - 1);
+                positions.add(i);
+            } else if (c == ':' || c == ',') {
+                positions.add(i);
+            }
+        }
+        if (inString || open.length() != 0) {
+            return null;
+        }
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+}